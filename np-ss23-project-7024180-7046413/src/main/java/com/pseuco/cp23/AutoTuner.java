@@ -0,0 +1,186 @@
+package com.pseuco.cp23;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.simulation.common.Options;
+import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.StopCondition;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.KdLayout;
+import com.pseuco.cp23.simulation.rocket.PartitionPlanner;
+import com.pseuco.cp23.simulation.rocket.Rocket;
+import com.pseuco.cp23.simulation.slug.Slug;
+import com.pseuco.cp23.simulation.tandem.Tandem;
+import com.pseuco.cp23.validator.DummyValidator;
+import com.pseuco.cp23.validator.InsufficientPaddingException;
+
+/**
+ * Picks the engine, the padding and the layout of the patches for a scenario.
+ *
+ * <p>
+ * Every candidate configuration simulates a short prefix of the ticks of the scenario
+ * and the fastest one is used to simulate the whole scenario. The candidate paddings are
+ * the minimal paddings for a few numbers of ticks between two synchronizations, so no
+ * candidate throws an insufficient padding exception or wastes work on padding it does
+ * not use. Scenarios which are too small to benefit from concurrency are simulated by
+ * the slug without running any pilots.
+ * </p>
+ */
+public class AutoTuner {
+    /*
+     * Scenarios with fewer persons than this are always simulated by the slug.
+     */
+    private static final int TINY_POPULATION = 64;
+
+    /*
+     * Scenarios with fewer person ticks than this are always simulated by the slug.
+     */
+    private static final long TINY_WORK = 50_000;
+
+    /*
+     * Maximal number of ticks a pilot simulates.
+     */
+    private static final int PILOT_TICKS = 20;
+
+    /*
+     * Candidate numbers of ticks between two synchronizations of the rocket.
+     */
+    private static final int[] SYNC_TICKS = { 1, 2, 4, 8 };
+
+    private interface Factory {
+        Simulation create(Scenario scenario, Options options) throws InsufficientPaddingException;
+    }
+
+    private static class Candidate {
+        private final String name;
+        private final Factory factory;
+
+        private Candidate(String name, Factory factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+    }
+
+    private final Scenario scenario;
+    private final int numberOfPatches;
+    private final Options options;
+    private Candidate choice;
+
+    /**
+     * Constructs a tuner for the given scenario.
+     *
+     * @param scenario        The scenario to simulate.
+     * @param numberOfPatches The number of patches for layouts not given by the scenario.
+     */
+    public AutoTuner(Scenario scenario, int numberOfPatches) {
+        this(scenario, numberOfPatches, new Options());
+    }
+
+    /**
+     * Constructs a tuner passing the given options to the chosen engine. The pilots
+     * simulate all of their ticks, only the simulation of the whole scenario stops early.
+     *
+     * @param scenario        The scenario to simulate.
+     * @param numberOfPatches The number of patches for layouts not given by the scenario.
+     * @param options         The options of the run.
+     */
+    public AutoTuner(Scenario scenario, int numberOfPatches, Options options) {
+        this.scenario = scenario;
+        this.numberOfPatches = numberOfPatches;
+        this.options = options;
+    }
+
+    /**
+     * Runs the pilots and returns a simulation of the whole scenario using the fastest
+     * candidate configuration.
+     *
+     * @return The simulation of the scenario, it has not been run yet.
+     */
+    public Simulation tune() {
+        List<Candidate> candidates = createCandidates();
+        this.choice = candidates.get(0);
+
+        if (!isTiny() && candidates.size() > 1) {
+            Scenario pilot = this.scenario.withTicks(
+                    Math.min(PILOT_TICKS, Math.max(1, this.scenario.getTicks() / 10)));
+
+            // the first pilot only warms up the JIT, its time would be unfair to compare
+            runPilot(candidates.get(0), pilot);
+            long bestTime = Long.MAX_VALUE;
+            for (Candidate candidate : candidates) {
+                long time = runPilot(candidate, pilot);
+                if (time < bestTime) {
+                    bestTime = time;
+                    this.choice = candidate;
+                }
+            }
+        }
+
+        return create(this.choice, this.scenario, this.options);
+    }
+
+    /**
+     * Returns a description of the configuration chosen by the last call of <em>tune</em>.
+     *
+     * @return The description of the chosen configuration.
+     */
+    public String getChoice() {
+        return this.choice == null ? null : this.choice.name;
+    }
+
+    private boolean isTiny() {
+        long persons = this.scenario.getPopulation().size();
+        return persons < TINY_POPULATION || persons * this.scenario.getTicks() < TINY_WORK;
+    }
+
+    /*
+     * The slug comes first, it is the choice if there are no pilots.
+     */
+    private List<Candidate> createCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate("slug", Slug::new));
+        candidates.add(new Candidate("tandem", Tandem::new));
+
+        int previous = -1;
+        for (int syncTicks : SYNC_TICKS) {
+            int padding = Rocket.getRequiredPadding(this.scenario.getParameters(), syncTicks);
+            if (padding == previous) {
+                continue;
+            }
+            previous = padding;
+
+            candidates.add(new Candidate("rocket padding=" + padding + " layout=scenario",
+                    (Scenario scenario, Options options) -> new Rocket(scenario, padding, new DummyValidator(),
+                            new GridLayout(scenario), options)));
+            candidates.add(new Candidate("rocket padding=" + padding + " layout=planned",
+                    (Scenario scenario, Options options) -> new Rocket(scenario, padding, new DummyValidator(),
+                            new GridLayout(scenario.withPartition(
+                                    new PartitionPlanner(scenario, padding).plan(this.numberOfPatches))),
+                            options)));
+            candidates.add(new Candidate("rocket padding=" + padding + " layout=kd",
+                    (Scenario scenario, Options options) -> new Rocket(scenario, padding, new DummyValidator(),
+                            new KdLayout(scenario, this.numberOfPatches), options)));
+        }
+        return candidates;
+    }
+
+    /*
+     * Returns the time it takes to set up and run the candidate on the pilot scenario in nanoseconds.
+     */
+    private long runPilot(Candidate candidate, Scenario pilot) {
+        final long startTime = System.nanoTime();
+        create(candidate, pilot, this.options.withStop(StopCondition.NEVER)).run();
+        return System.nanoTime() - startTime;
+    }
+
+    private Simulation create(Candidate candidate, Scenario scenario, Options options) {
+        try {
+            return candidate.factory.create(scenario, options);
+        } catch (InsufficientPaddingException error) {
+            // the candidate paddings are never insufficient
+            throw new RuntimeException(error);
+        }
+    }
+}
@@ -2,18 +2,35 @@ package com.pseuco.cp23;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import com.beust.jcommander.IStringConverter;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.beust.jcommander.converters.IParameterSplitter;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pseuco.cp23.io.Compression;
+import com.pseuco.cp23.model.Partition;
 import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.simulation.common.InfectionKernel;
+import com.pseuco.cp23.simulation.common.Options;
 import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.StopCondition;
+import com.pseuco.cp23.simulation.freighter.Freighter;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.KdLayout;
+import com.pseuco.cp23.simulation.rocket.Layout;
+import com.pseuco.cp23.simulation.rocket.PartitionPlanner;
 import com.pseuco.cp23.simulation.rocket.Rocket;
 import com.pseuco.cp23.simulation.rocket.Starship;
 import com.pseuco.cp23.simulation.slug.Slug;
+import com.pseuco.cp23.simulation.tandem.Tandem;
 import com.pseuco.cp23.validator.DummyValidator;
 import com.pseuco.cp23.validator.InsufficientPaddingException;
 
@@ -28,12 +45,28 @@ public class Simulator {
         }
     }
 
+    /*
+     * Keeps every value of a list parameter as it is, the default splits values on commas.
+     */
+    public static class NoSplitter implements IParameterSplitter {
+        @Override
+        public List<String> split(String value) {
+            return Collections.singletonList(value);
+        }
+    }
+
     @Parameter(names = "--scenario", required = true, converter = FileConverter.class)
     private File scenarioFile;
 
     @Parameter(names = "--out", required = true, converter = FileConverter.class)
     private File outputFile;
 
+    @Parameter(names = "--gzip")
+    private boolean gzip = false;
+
+    @Parameter(names = "--gzip-workers")
+    private int gzipWorkers = Runtime.getRuntime().availableProcessors();
+
     @Parameter(names = "--padding")
     private int padding = 10;
 
@@ -46,6 +79,40 @@ public class Simulator {
     @Parameter(names = "--starship")
     private boolean starship = false;
 
+    @Parameter(names = "--kernel")
+    private InfectionKernel.Type kernel = InfectionKernel.Type.EMITTERS;
+
+    @Parameter(names = "--precompute-digests")
+    private boolean precomputeDigests = false;
+
+    // every --stop is a single condition, which may contain commas, the run ends at the first one reached
+    @Parameter(names = "--stop", splitter = NoSplitter.class)
+    private List<String> stop = new ArrayList<>();
+
+    @Parameter(names = "--tandem")
+    private boolean tandem = false;
+
+    @Parameter(names = "--freighter")
+    private boolean freighter = false;
+
+    @Parameter(names = "--workers")
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = "--plan-partition")
+    private boolean planPartition = false;
+
+    @Parameter(names = "--kd")
+    private boolean kd = false;
+
+    @Parameter(names = "--rebalance")
+    private boolean rebalance = false;
+
+    @Parameter(names = "--auto")
+    private boolean auto = false;
+
+    @Parameter(names = "--patches")
+    private int patches = Runtime.getRuntime().availableProcessors();
+
     public static void main(String[] args) throws JsonParseException, JsonMappingException, IOException {
         final Simulator app = new Simulator();
         JCommander.newBuilder().addObject(app).args(args).build();
@@ -55,31 +122,80 @@ public class Simulator {
     public void run() throws JsonParseException, JsonMappingException, IOException {
         final ObjectMapper objectMapper = new ObjectMapper();
 
-        final Scenario scenario = objectMapper.readValue(this.scenarioFile, Scenario.class);
+        // the scenario may be compressed with gzip
+        Scenario scenario;
+        try (InputStream input = Compression.openInput(this.scenarioFile)) {
+            scenario = objectMapper.readValue(input, Scenario.class);
+        }
 
         System.out.println("Scenario: " + scenario.getName());
         System.out.println("Ticks: " + scenario.getTicks());
 
+        // the run ends at the first tick any of the stop conditions is reached at
+        StopCondition stop = StopCondition.NEVER;
+        if (!this.stop.isEmpty()) {
+            List<StopCondition> conditions = new ArrayList<>();
+            for (String condition : this.stop) {
+                conditions.add(StopCondition.parse(condition));
+            }
+            stop = StopCondition.anyOf(conditions);
+        }
+        Options options = new Options()
+                .withKernel(this.kernel)
+                .withPrecomputeDigests(this.precomputeDigests)
+                .withRebalance(this.rebalance)
+                .withStop(stop);
+
         Simulation simulation;
-        if (this.starship) {
+        if (this.auto) {
+            // pilot runs on a prefix of the ticks decide on the engine, the padding and the layout
+            AutoTuner tuner = new AutoTuner(scenario, this.patches, options);
+            simulation = tuner.tune();
+            System.out.println("Configuration: " + tuner.getChoice());
+        } else if (this.tandem) {
+            simulation = new Tandem(scenario, options);
+        } else if (this.freighter) {
+            try {
+                // only the patches the workers are busy with are kept in memory
+                simulation = new Freighter(scenario, this.padding, this.workers, options);
+            } catch (InsufficientPaddingException error) {
+                throw new RuntimeException(error);
+            }
+        } else if (this.starship) {
             simulation = new Starship(scenario, this.padding);
         } else if (this.rocket) {
             try {
-                simulation = new Rocket(scenario, this.padding, new DummyValidator());
+                // with --kd we bisect the grid recursively instead of using the partition of the scenario
+                Layout layout = this.kd ? new KdLayout(scenario, this.patches) : new GridLayout(scenario);
+                if (!this.kd && this.planPartition) {
+                    // the patches follow a partition balanced for the population, the output keeps the scenario as it is
+                    Partition plan = new PartitionPlanner(scenario, this.padding).plan(this.patches);
+                    System.out.println("Partition: x=" + plan.getX() + " y=" + plan.getY());
+                    layout = new GridLayout(scenario.withPartition(plan));
+                }
+                simulation = new Rocket(scenario, this.padding, new DummyValidator(), layout, options);
             } catch (InsufficientPaddingException error) {
                 throw new RuntimeException(error);
             }
         } else {
-            simulation = new Slug(scenario);
+            simulation = new Slug(scenario, options);
         }
-
         final long startTime = System.nanoTime();
         simulation.run();
         final long endTime = System.nanoTime();
 
         System.out.println("Time: " + (endTime - startTime) / 1000000 + "ms");
 
-        objectMapper.writeValue(this.outputFile, simulation.getOutput());
+        // outputs named *.gz are compressed as well, the blocks are compressed concurrently
+        boolean compress = this.gzip || Compression.hasGzipSuffix(this.outputFile);
+        try (OutputStream output = Compression.openOutput(this.outputFile, compress, this.gzipWorkers)) {
+            objectMapper.writeValue(output, simulation.getOutput());
+        } finally {
+            if (simulation instanceof Freighter) {
+                // the population and the trace have been read from the files of the freighter
+                ((Freighter) simulation).close();
+            }
+        }
     }
 
 }
@@ -0,0 +1,69 @@
+package com.pseuco.cp23.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens scenario and output files which may be compressed with gzip.
+ */
+public class Compression {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Compression() {
+    }
+
+    /**
+     * Returns whether the name of the given file ends with <em>.gz</em>.
+     *
+     * @param file The file.
+     * @return Whether the file is named like a gzip file.
+     */
+    public static boolean hasGzipSuffix(File file) {
+        return file.getName().endsWith(".gz");
+    }
+
+    /**
+     * Opens the given file for reading, decompressing it if it starts with the magic
+     * bytes of gzip.
+     *
+     * @param file The file to read.
+     * @return The (decompressed) contents of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static InputStream openInput(File file) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        input.mark(2);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return input;
+    }
+
+    /**
+     * Opens the given file for writing, optionally compressing the data with gzip on the
+     * given number of workers.
+     *
+     * @param file    The file to write.
+     * @param gzip    Whether to compress the data.
+     * @param workers The number of workers compressing the data.
+     * @return The stream to write the data to.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static OutputStream openOutput(File file, boolean gzip, int workers) throws IOException {
+        if (gzip) {
+            return new ParallelGzipOutputStream(file.toPath(), workers, Deflater.DEFAULT_COMPRESSION);
+        }
+        return new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,219 @@
+package com.pseuco.cp23.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a gzip file, compressing blocks of the data concurrently.
+ *
+ * <p>
+ * The data is cut into blocks which are deflated independently on a pool of workers, each
+ * using the end of the previous block as its dictionary so the compression ratio hardly
+ * suffers. Every block but the last ends with a sync flush, i.e., on a byte boundary
+ * without ending the deflate stream, so the blocks simply concatenate to a single deflate
+ * stream. The blocks are written in order through a file channel, the checksum is computed
+ * while the data is handed in. The result is a plain gzip member any gunzip can read.
+ * </p>
+ *
+ * <p>
+ * At most two blocks per worker are in flight, afterwards writing waits for the oldest
+ * block. The stream must be closed to write the last block and the trailer.
+ * </p>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    /*
+     * Size of the uncompressed blocks.
+     */
+    private static final int BLOCK_SIZE = 128 * 1024;
+
+    /*
+     * Deflate looks back at most that far, so that much of the previous block is its dictionary.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final int level;
+
+    private final Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private long size = 0;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int length = 0;
+    private byte[] previous = null; // the last block handed to the workers
+    private boolean closed = false;
+
+    /**
+     * Creates or truncates the given file and writes to it with one worker per processor.
+     *
+     * @param path The file to write.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ParallelGzipOutputStream(Path path) throws IOException {
+        this(path, Runtime.getRuntime().availableProcessors(), Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates or truncates the given file and writes to it with the given number of workers.
+     *
+     * @param path    The file to write.
+     * @param workers The number of workers compressing blocks.
+     * @param level   The compression level, see <em>Deflater</em>.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ParallelGzipOutputStream(Path path, int workers, int level) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, workers), (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = 2 * Math.max(1, workers);
+        this.level = level;
+        writeFully(ByteBuffer.wrap(HEADER));
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (this.closed) {
+            throw new IOException("stream closed");
+        }
+        if (this.length == this.block.length) {
+            submit(false);
+        }
+        this.block[this.length++] = (byte) value;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int count) throws IOException {
+        if (this.closed) {
+            throw new IOException("stream closed");
+        }
+        while (count > 0) {
+            if (this.length == this.block.length) {
+                submit(false);
+            }
+            int chunk = Math.min(count, this.block.length - this.length);
+            System.arraycopy(data, offset, this.block, this.length, chunk);
+            this.length += chunk;
+            offset += chunk;
+            count -= chunk;
+        }
+    }
+
+    /*
+     * Hands the current block to the workers and writes the blocks which are done, in order.
+     */
+    private void submit(boolean last) throws IOException {
+        final byte[] input = this.block;
+        final int inputLength = this.length;
+        final byte[] dictionary = this.previous;
+        this.crc.update(input, 0, inputLength);
+        this.size += inputLength;
+        this.pending.add(this.executor.submit(() -> deflate(input, inputLength, dictionary, last)));
+        this.previous = input;
+        this.block = new byte[BLOCK_SIZE];
+        this.length = 0;
+
+        while (!this.pending.isEmpty() && (this.pending.size() > this.maxPending || this.pending.peek().isDone())) {
+            writeFully(await(this.pending.poll()));
+        }
+    }
+
+    /*
+     * Deflates a block without any header, the output ends on a byte boundary.
+     */
+    private ByteBuffer deflate(byte[] input, int inputLength, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(this.level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(input, 0, inputLength);
+            if (last) {
+                deflater.finish();
+            }
+            byte[] output = new byte[inputLength + inputLength / 8 + 64];
+            int written = 0;
+            while (true) {
+                if (written == output.length) {
+                    output = Arrays.copyOf(output, 2 * output.length);
+                }
+                int count = deflater.deflate(output, written, output.length - written,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                written += count;
+                // a flush is complete once it leaves room in the output, a finish once the deflater says so
+                if (last ? deflater.finished() : written < output.length && deflater.needsInput()) {
+                    break;
+                }
+            }
+            return ByteBuffer.wrap(output, 0, written);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private ByteBuffer await(Future<ByteBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException error) {
+            throw new IOException(error.getCause());
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    /**
+     * Compresses the remaining data, writes the trailer and closes the file.
+     *
+     * @throws IOException If writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            submit(true);
+            while (!this.pending.isEmpty()) {
+                writeFully(await(this.pending.poll()));
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) this.crc.getValue());
+            trailer.putInt((int) this.size);
+            trailer.flip();
+            writeFully(trailer);
+        } finally {
+            this.executor.shutdownNow();
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Reading and writing scenario and output files, optionally compressed with gzip.
+ */
+package com.pseuco.cp23.io;
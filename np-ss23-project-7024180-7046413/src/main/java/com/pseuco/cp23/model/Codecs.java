@@ -0,0 +1,582 @@
+package com.pseuco.cp23.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Streaming serializers and deserializers for the model classes which make up the bulk of
+ * scenarios and outputs.
+ *
+ * <p>
+ * The codecs write and read the tokens directly instead of going through the reflective
+ * bean binding of Jackson. The field names and the enum constants are encoded once, the
+ * nested objects are written and read by calling the codecs directly instead of looking up
+ * a serializer for every value, the seeds are encoded into the output buffer of the
+ * generator. The produced JSON is the same as with the annotations of the model classes,
+ * which are attached to the codecs with <em>@JsonSerialize</em> and
+ * <em>@JsonDeserialize</em>. Only the API of Jackson 2.9 is used.
+ * </p>
+ */
+public final class Codecs {
+    private static final SerializedString X = new SerializedString("x");
+    private static final SerializedString Y = new SerializedString("y");
+
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString POSITION = new SerializedString("pos");
+    private static final SerializedString SEED = new SerializedString("rngState");
+    private static final SerializedString INFECTION_STATE = new SerializedString("infectionState");
+    private static final SerializedString DIRECTION = new SerializedString("direction");
+
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString SINCE = new SerializedString("since");
+
+    private static final SerializedString POPULATION = new SerializedString("population");
+
+    private static final SerializedString SUSCEPTIBLE = new SerializedString("susceptible");
+    private static final SerializedString INFECTED = new SerializedString("infected");
+    private static final SerializedString INFECTIOUS = new SerializedString("infectious");
+    private static final SerializedString RECOVERED = new SerializedString("recovered");
+
+    // the names of the constants, indexed by ordinal, as given by their @JsonProperty annotations
+    private static final SerializableString[] STATES = encode("healthy", "infected", "infectious", "recovered");
+    private static final SerializableString[] DIRECTIONS = encode("N", "E", "S", "W", "NE", "NW", "SE", "SW", "X");
+
+    private Codecs() {
+    }
+
+    private static SerializableString[] encode(String... names) {
+        SerializableString[] result = new SerializableString[names.length];
+        for (int index = 0; index < names.length; index++) {
+            result[index] = new SerializedString(names[index]);
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> E lookup(SerializableString[] names, E[] constants, String name) {
+        for (int index = 0; index < names.length; index++) {
+            if (names[index].getValue().equals(name)) {
+                return constants[index];
+            }
+        }
+        return null;
+    }
+
+    static void writeXY(XY value, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(X);
+        generator.writeNumber(value.getX());
+        generator.writeFieldName(Y);
+        generator.writeNumber(value.getY());
+        generator.writeEndObject();
+    }
+
+    static void writeInfectionState(InfectionState value, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(TYPE);
+        generator.writeString(STATES[value.getState().ordinal()]);
+        generator.writeFieldName(SINCE);
+        generator.writeNumber(value.getInStateSince());
+        generator.writeEndObject();
+    }
+
+    static void writePersonInfo(PersonInfo value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(NAME);
+        generator.writeString(value.getName());
+        generator.writeFieldName(POSITION);
+        writeXY(value.getPosition(), generator);
+        generator.writeFieldName(SEED);
+        byte[] seed = value.getSeed();
+        generator.writeBinary(provider.getConfig().getBase64Variant(), seed, 0, seed.length);
+        generator.writeFieldName(INFECTION_STATE);
+        writeInfectionState(value.getInfectionState(), generator);
+        generator.writeFieldName(DIRECTION);
+        generator.writeString(DIRECTIONS[value.getDirection().ordinal()]);
+        generator.writeEndObject();
+    }
+
+    /*
+     * Returns the name of the first field of an object or null if it is empty, Jackson may already have consumed the start of the object.
+     */
+    private static String enterObject(JsonParser parser, DeserializationContext context, Class<?> type)
+            throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return parser.nextFieldName();
+        }
+        if (token == JsonToken.FIELD_NAME) {
+            return parser.getCurrentName();
+        }
+        if (token != JsonToken.END_OBJECT) {
+            context.handleUnexpectedToken(type, parser);
+        }
+        return null;
+    }
+
+    /*
+     * Decodes a seed straight from the characters of the parser into an array of the right size,
+     * anything but plain padded Base64 is left to the parser.
+     */
+    private static byte[] readSeed(JsonParser parser, DeserializationContext context) throws IOException {
+        Base64Variant variant = context.getBase64Variant();
+        int length = parser.getCurrentToken() == JsonToken.VALUE_STRING ? parser.getTextLength() : 0;
+        if (!variant.usesPadding() || length == 0 || length % 4 != 0) {
+            return parser.getBinaryValue(variant);
+        }
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        char paddingChar = variant.getPaddingChar();
+        int padding = 0;
+        while (padding < 2 && text[offset + length - 1 - padding] == paddingChar) {
+            padding++;
+        }
+        byte[] result = new byte[length / 4 * 3 - padding];
+        int written = 0;
+        for (int index = 0; index < length; index += 4) {
+            int bits = 0;
+            int digits = 0;
+            for (; digits < 4 && index + digits < length - padding; digits++) {
+                int value = variant.decodeBase64Char(text[offset + index + digits]);
+                if (value < 0) {
+                    return parser.getBinaryValue(variant);
+                }
+                bits = (bits << 6) | value;
+            }
+            bits <<= 6 * (4 - digits);
+            for (int shift = 16; shift >= 0 && written < result.length; shift -= 8) {
+                result[written++] = (byte) (bits >> shift);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Reads a string value, scalars are taken by their text like Jackson does for String fields.
+     */
+    private static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != null && token.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        return (String) context.handleUnexpectedToken(String.class, parser);
+    }
+
+    /*
+     * Reads a primitive long value, also accepting numbers within strings and floats if the features allow them.
+     */
+    private static long readLong(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT && context.isEnabled(DeserializationFeature.ACCEPT_FLOAT_AS_INT)) {
+            return parser.getValueAsLong();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException error) {
+                return ((Number) context.handleWeirdStringValue(Long.TYPE, text, "not a valid long value"))
+                        .longValue();
+            }
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            if (context.isEnabled(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)) {
+                context.reportInputMismatch(Long.TYPE, "Cannot map `null` into type long");
+            }
+            return 0;
+        }
+        return ((Number) context.handleUnexpectedToken(Long.TYPE, parser)).longValue();
+    }
+
+    private static int readInt(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        long value = readLong(parser, context);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            context.reportInputMismatch(Integer.TYPE, "Value %d out of range of int", value);
+        }
+        return (int) value;
+    }
+
+    private static void requireField(boolean present, String field, JsonDeserializer<?> deserializer,
+            DeserializationContext context) throws IOException {
+        if (!present) {
+            context.reportInputMismatch(deserializer, "Missing required creator property '%s'", field);
+        }
+    }
+
+    /**
+     * Serializes vectors.
+     */
+    public static class XYSerializer extends StdSerializer<XY> {
+        private static final long serialVersionUID = 1L;
+
+        public XYSerializer() {
+            super(XY.class);
+        }
+
+        @Override
+        public void serialize(XY value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            writeXY(value, generator);
+        }
+    }
+
+    /**
+     * Deserializes vectors.
+     */
+    public static class XYDeserializer extends StdDeserializer<XY> {
+        private static final long serialVersionUID = 1L;
+
+        public XYDeserializer() {
+            super(XY.class);
+        }
+
+        @Override
+        public XY deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            int x = 0;
+            int y = 0;
+            boolean hasX = false;
+            boolean hasY = false;
+            for (String field = enterObject(parser, context, XY.class); field != null;
+                    field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "x":
+                        x = readInt(parser, context);
+                        hasX = true;
+                        break;
+                    case "y":
+                        y = readInt(parser, context);
+                        hasY = true;
+                        break;
+                    default:
+                        context.handleUnknownProperty(parser, this, XY.class, field);
+                }
+            }
+            requireField(hasX, "x", this, context);
+            requireField(hasY, "y", this, context);
+            return new XY(x, y);
+        }
+    }
+
+    /**
+     * Serializes directions.
+     */
+    public static class DirectionSerializer extends StdSerializer<Direction> {
+        private static final long serialVersionUID = 1L;
+
+        public DirectionSerializer() {
+            super(Direction.class);
+        }
+
+        @Override
+        public void serialize(Direction value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeString(DIRECTIONS[value.ordinal()]);
+        }
+    }
+
+    /**
+     * Deserializes directions.
+     */
+    public static class DirectionDeserializer extends StdDeserializer<Direction> {
+        private static final long serialVersionUID = 1L;
+
+        public DirectionDeserializer() {
+            super(Direction.class);
+        }
+
+        @Override
+        public Direction deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String name = readString(parser, context);
+            Direction direction = lookup(DIRECTIONS, Direction.values(), name);
+            if (direction == null) {
+                return (Direction) context.handleWeirdStringValue(Direction.class, name,
+                        "not one of the values accepted for Enum class: [N, E, S, W, NE, NW, SE, SW, X]");
+            }
+            return direction;
+        }
+    }
+
+    /**
+     * Serializes infection states.
+     */
+    public static class InfectionStateSerializer extends StdSerializer<InfectionState> {
+        private static final long serialVersionUID = 1L;
+
+        public InfectionStateSerializer() {
+            super(InfectionState.class);
+        }
+
+        @Override
+        public void serialize(InfectionState value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            writeInfectionState(value, generator);
+        }
+    }
+
+    /**
+     * Deserializes infection states, the time in the state defaults to zero.
+     */
+    public static class InfectionStateDeserializer extends StdDeserializer<InfectionState> {
+        private static final long serialVersionUID = 1L;
+
+        public InfectionStateDeserializer() {
+            super(InfectionState.class);
+        }
+
+        @Override
+        public InfectionState deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            InfectionState.State state = null;
+            int since = 0;
+            for (String field = enterObject(parser, context, InfectionState.class); field != null;
+                    field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "type":
+                        String name = readString(parser, context);
+                        state = lookup(STATES, InfectionState.State.values(), name);
+                        if (state == null) {
+                            state = (InfectionState.State) context.handleWeirdStringValue(InfectionState.State.class,
+                                    name, "not one of the values accepted for Enum class: "
+                                            + "[healthy, infected, infectious, recovered]");
+                        }
+                        break;
+                    case "since":
+                        since = readInt(parser, context);
+                        break;
+                    default:
+                        context.handleUnknownProperty(parser, this, InfectionState.class, field);
+                }
+            }
+            requireField(state != null, "type", this, context);
+            return new InfectionState(state, since);
+        }
+    }
+
+    /**
+     * Serializes persons.
+     */
+    public static class PersonInfoSerializer extends StdSerializer<PersonInfo> {
+        private static final long serialVersionUID = 1L;
+
+        public PersonInfoSerializer() {
+            super(PersonInfo.class);
+        }
+
+        @Override
+        public void serialize(PersonInfo value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            writePersonInfo(value, generator, provider);
+        }
+    }
+
+    /**
+     * Deserializes persons.
+     */
+    public static class PersonInfoDeserializer extends StdDeserializer<PersonInfo> {
+        private static final long serialVersionUID = 1L;
+
+        private final XYDeserializer positions = new XYDeserializer();
+        private final InfectionStateDeserializer infectionStates = new InfectionStateDeserializer();
+        private final DirectionDeserializer directions = new DirectionDeserializer();
+
+        public PersonInfoDeserializer() {
+            super(PersonInfo.class);
+        }
+
+        @Override
+        public PersonInfo deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String name = null;
+            XY position = null;
+            byte[] seed = null;
+            InfectionState infectionState = null;
+            Direction direction = null;
+            for (String field = enterObject(parser, context, PersonInfo.class); field != null;
+                    field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "name":
+                        name = readString(parser, context);
+                        break;
+                    case "pos":
+                        position = this.positions.deserialize(parser, context);
+                        break;
+                    case "rngState":
+                        seed = readSeed(parser, context);
+                        break;
+                    case "infectionState":
+                        infectionState = this.infectionStates.deserialize(parser, context);
+                        break;
+                    case "direction":
+                        direction = this.directions.deserialize(parser, context);
+                        break;
+                    default:
+                        context.handleUnknownProperty(parser, this, PersonInfo.class, field);
+                }
+            }
+            requireField(name != null, "name", this, context);
+            requireField(position != null, "pos", this, context);
+            requireField(seed != null, "rngState", this, context);
+            requireField(infectionState != null, "infectionState", this, context);
+            requireField(direction != null, "direction", this, context);
+            return new PersonInfo(name, position, seed, infectionState, direction);
+        }
+    }
+
+    /**
+     * Serializes trace entries, writing the persons without looking up their serializer.
+     */
+    public static class TraceEntrySerializer extends StdSerializer<TraceEntry> {
+        private static final long serialVersionUID = 1L;
+
+        public TraceEntrySerializer() {
+            super(TraceEntry.class);
+        }
+
+        @Override
+        public void serialize(TraceEntry value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            generator.writeFieldName(POPULATION);
+            List<PersonInfo> population = value.getPopulation();
+            generator.writeStartArray();
+            for (int index = 0; index < population.size(); index++) {
+                writePersonInfo(population.get(index), generator, provider);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Deserializes trace entries.
+     */
+    public static class TraceEntryDeserializer extends StdDeserializer<TraceEntry> {
+        private static final long serialVersionUID = 1L;
+
+        private final PersonInfoDeserializer persons = new PersonInfoDeserializer();
+
+        public TraceEntryDeserializer() {
+            super(TraceEntry.class);
+        }
+
+        @Override
+        public TraceEntry deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            List<PersonInfo> population = null;
+            for (String field = enterObject(parser, context, TraceEntry.class); field != null;
+                    field = parser.nextFieldName()) {
+                parser.nextToken();
+                if (field.equals("population")) {
+                    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+                        context.handleUnexpectedToken(List.class, parser);
+                    }
+                    population = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        population.add(this.persons.deserialize(parser, context));
+                    }
+                } else {
+                    context.handleUnknownProperty(parser, this, TraceEntry.class, field);
+                }
+            }
+            requireField(population != null, "population", this, context);
+            return new TraceEntry(population);
+        }
+    }
+
+    /**
+     * Serializes statistics.
+     */
+    public static class StatisticsSerializer extends StdSerializer<Statistics> {
+        private static final long serialVersionUID = 1L;
+
+        public StatisticsSerializer() {
+            super(Statistics.class);
+        }
+
+        @Override
+        public void serialize(Statistics value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            generator.writeFieldName(SUSCEPTIBLE);
+            generator.writeNumber(value.getSusceptible());
+            generator.writeFieldName(INFECTED);
+            generator.writeNumber(value.getInfected());
+            generator.writeFieldName(INFECTIOUS);
+            generator.writeNumber(value.getInfectious());
+            generator.writeFieldName(RECOVERED);
+            generator.writeNumber(value.getRecovered());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Deserializes statistics.
+     */
+    public static class StatisticsDeserializer extends StdDeserializer<Statistics> {
+        private static final long serialVersionUID = 1L;
+
+        public StatisticsDeserializer() {
+            super(Statistics.class);
+        }
+
+        @Override
+        public Statistics deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            long[] values = new long[4];
+            boolean[] present = new boolean[4];
+            for (String field = enterObject(parser, context, Statistics.class); field != null;
+                    field = parser.nextFieldName()) {
+                parser.nextToken();
+                int index;
+                switch (field) {
+                    case "susceptible":
+                        index = 0;
+                        break;
+                    case "infected":
+                        index = 1;
+                        break;
+                    case "infectious":
+                        index = 2;
+                        break;
+                    case "recovered":
+                        index = 3;
+                        break;
+                    default:
+                        context.handleUnknownProperty(parser, this, Statistics.class, field);
+                        continue;
+                }
+                values[index] = readLong(parser, context);
+                present[index] = true;
+            }
+            requireField(present[0], "susceptible", this, context);
+            requireField(present[1], "infected", this, context);
+            requireField(present[2], "infectious", this, context);
+            requireField(present[3], "recovered", this, context);
+            return new Statistics(values[0], values[1], values[2], values[3]);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.pseuco.cp23.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents a direction of movement.
  */
+@JsonSerialize(using = Codecs.DirectionSerializer.class)
+@JsonDeserialize(using = Codecs.DirectionDeserializer.class)
 public enum Direction {
     @JsonProperty("N")
     NORTH(0, -1),
@@ -2,10 +2,14 @@ package com.pseuco.cp23.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents the state of a person including how long it has been in that state.
  */
+@JsonSerialize(using = Codecs.InfectionStateSerializer.class)
+@JsonDeserialize(using = Codecs.InfectionStateDeserializer.class)
 public class InfectionState {
     /**
      * Represents the state of a person.
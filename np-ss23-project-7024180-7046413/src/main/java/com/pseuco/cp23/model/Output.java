@@ -1,5 +1,7 @@
 package com.pseuco.cp23.model;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -62,4 +64,24 @@ public class Output {
     public Map<String, List<Statistics>> getStatistics() {
         return this.statistics;
     }
+
+    /**
+     * Returns a copy of the output ending with the given tick, as if the scenario only
+     * had that many ticks. The trace of the copy is a view of the trace.
+     *
+     * @param ticks The last tick to keep.
+     * @return The truncated output.
+     */
+    public Output truncate(int ticks) {
+        Map<String, List<Statistics>> statistics = new HashMap<>();
+        for (Map.Entry<String, List<Statistics>> entry : this.statistics.entrySet()) {
+            statistics.put(entry.getKey(), new ArrayList<>(entry.getValue().subList(0, ticks + 1)));
+        }
+        List<TraceEntry> trace = this.trace;
+        if (!trace.isEmpty()) {
+            // a view, the trace may be decoded lazily and should not be copied
+            trace = trace.subList(0, ticks + 1);
+        }
+        return new Output(this.scenario.withTicks(ticks), trace, statistics);
+    }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import java.util.Arrays;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents a person on the grid.
@@ -11,6 +13,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * Note that this is a mere data container holding information about a person but
  * does not contain any simulation functionality.
  */
+@JsonSerialize(using = Codecs.PersonInfoSerializer.class)
+@JsonDeserialize(using = Codecs.PersonInfoDeserializer.class)
 public class PersonInfo {
     @JsonProperty("name")
     private final String name;
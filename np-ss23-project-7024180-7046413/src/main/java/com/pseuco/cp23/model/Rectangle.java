@@ -152,6 +152,20 @@ public class Rectangle implements Iterable<XY> {
                 && cell.getY() < this.bottomRight.getY());
     }
 
+    /**
+     * Returns whether the cell with the given coordinates is contained in the rectangle.
+     *
+     * @param x The <em>x</em>-coordinate of the cell.
+     * @param y The <em>y</em>-coordinate of the cell.
+     * @return Whether the cell is contained in the rectangle.
+     */
+    public boolean contains(int x, int y) {
+        return (this.topLeft.getX() <= x
+                && x < this.bottomRight.getX()
+                && this.topLeft.getY() <= y
+                && y < this.bottomRight.getY());
+    }
+
     /**
      * Returns an iterator over the cells of the rectangle.
      *
@@ -154,6 +154,46 @@ public class Scenario {
         return this.population;
     }
 
+    /**
+     * Returns a copy of the scenario using the given partition instead.
+     *
+     * @param partition The partition of the grid into patches.
+     * @return The scenario with the given partition.
+     */
+    public Scenario withPartition(Partition partition) {
+        return new Scenario(
+                this.name, this.parameters, this.ticks, this.gridSize, this.trace, partition,
+                this.obstacles, this.queries, this.population
+        );
+    }
+
+    /**
+     * Returns a copy of the scenario with the given population instead, e.g., one which is
+     * not kept on the heap.
+     *
+     * @param population The population of the scenario.
+     * @return The scenario with the given population.
+     */
+    public Scenario withPopulation(List<PersonInfo> population) {
+        return new Scenario(
+                this.name, this.parameters, this.ticks, this.gridSize, this.trace, this.partition,
+                this.obstacles, this.queries, population
+        );
+    }
+
+    /**
+     * Returns a copy of the scenario simulating the given number of ticks instead.
+     *
+     * @param ticks The number of ticks to simulate.
+     * @return The scenario with the given number of ticks.
+     */
+    public Scenario withTicks(int ticks) {
+        return new Scenario(
+                this.name, this.parameters, ticks, this.gridSize, this.trace, this.partition,
+                this.obstacles, this.queries, this.population
+        );
+    }
+
     /**
      * Returns the grid as a rectangle.
      *
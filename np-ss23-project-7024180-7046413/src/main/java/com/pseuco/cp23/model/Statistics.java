@@ -1,10 +1,14 @@
 package com.pseuco.cp23.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents SI²R-statistics at some point in time.
  */
+@JsonSerialize(using = Codecs.StatisticsSerializer.class)
+@JsonDeserialize(using = Codecs.StatisticsDeserializer.class)
 public class Statistics {
     @JsonProperty(value = "susceptible")
     private final long susceptible;
@@ -3,10 +3,14 @@ package com.pseuco.cp23.model;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents the population at some point in time.
  */
+@JsonSerialize(using = Codecs.TraceEntrySerializer.class)
+@JsonDeserialize(using = Codecs.TraceEntryDeserializer.class)
 public class TraceEntry {
     @JsonProperty(value = "population")
     private final List<PersonInfo> population;
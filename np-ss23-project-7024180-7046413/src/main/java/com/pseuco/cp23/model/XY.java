@@ -2,12 +2,16 @@ package com.pseuco.cp23.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
  * Represents a two-dimensional vector with an <em>x</em>- and a <em>y</em>-component.
  *
  * Useful for all kinds of calculations with coordinates, velocities, et cetera.
  */
+@JsonSerialize(using = Codecs.XYSerializer.class)
+@JsonDeserialize(using = Codecs.XYDeserializer.class)
 public class XY {
     @JsonProperty(value = "x")
     private final int x;
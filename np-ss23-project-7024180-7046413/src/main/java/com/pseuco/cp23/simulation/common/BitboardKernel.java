@@ -0,0 +1,182 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An infection kernel for dense crowds working on bitboards.
+ *
+ * <p>
+ * The emitters of the tick are rasterized into rows of 64-bit words covering their
+ * bounding box extended by the infection radius. The board is dilated by the diamond
+ * of the infection radius: dilating a row horizontally by one cell is a shift to either
+ * side, and the row of distance <em>d</em> contributes its dilation by <em>radius - d</em>.
+ * The result is intersected with a board of the susceptible persons which are breathing,
+ * so whole words of cells are checked at once. The boards are kept between ticks and
+ * only grow.
+ * </p>
+ */
+public class BitboardKernel implements InfectionKernel {
+    private final int infectionRadius;
+
+    private final List<Person> emitters = new ArrayList<>();
+
+    private long[] sources = new long[0];
+    private long[] dilated = new long[0];
+    private long[] reached = new long[0];
+    private long[] targets = new long[0];
+
+    private int fromX;
+    private int fromY;
+    private int width;
+    private int height;
+    private int words; // words per row
+
+    /**
+     * Constructs a kernel for the given infection radius.
+     *
+     * @param infectionRadius The infection radius of the scenario.
+     */
+    public BitboardKernel(int infectionRadius) {
+        this.infectionRadius = infectionRadius;
+    }
+
+    @Override
+    public void clear() {
+        this.emitters.clear();
+    }
+
+    @Override
+    public void offer(Person person) {
+        if (person.isInfectious() && person.isCoughing()) {
+            this.emitters.add(person);
+        }
+    }
+
+    @Override
+    public void infect(List<Person> population) {
+        if (this.emitters.isEmpty()) {
+            return;
+        }
+        prepareBoards();
+        for (Person emitter : this.emitters) {
+            set(this.sources, emitter.getX() - this.fromX, emitter.getY() - this.fromY);
+        }
+        dilate();
+
+        List<Person> candidates = new ArrayList<>();
+        for (Person person : population) {
+            int x = person.getX() - this.fromX;
+            int y = person.getY() - this.fromY;
+            if (x >= 0 && x < this.width && y >= 0 && y < this.height
+                    && person.isSusceptible() && person.isBreathing()) {
+                set(this.targets, x, y);
+                candidates.add(person);
+            }
+        }
+
+        boolean hit = false;
+        for (int index = 0; index < this.height * this.words; index++) {
+            this.targets[index] &= this.reached[index];
+            hit |= this.targets[index] != 0;
+        }
+        if (!hit) {
+            return;
+        }
+        for (Person person : candidates) {
+            if (get(this.targets, person.getX() - this.fromX, person.getY() - this.fromY)) {
+                person.infect();
+            }
+        }
+    }
+
+    /*
+     * Computes the bounding box of the emitters extended by the infection radius and clears the boards.
+     */
+    private void prepareBoards() {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Person emitter : this.emitters) {
+            minX = Math.min(minX, emitter.getX());
+            minY = Math.min(minY, emitter.getY());
+            maxX = Math.max(maxX, emitter.getX());
+            maxY = Math.max(maxY, emitter.getY());
+        }
+        this.fromX = minX - this.infectionRadius;
+        this.fromY = minY - this.infectionRadius;
+        this.width = maxX - minX + 2 * this.infectionRadius + 1;
+        this.height = maxY - minY + 2 * this.infectionRadius + 1;
+        this.words = (this.width + 63) >>> 6;
+
+        int size = this.height * this.words;
+        if (this.sources.length < size) {
+            this.sources = new long[size];
+            this.dilated = new long[size];
+            this.reached = new long[size];
+            this.targets = new long[size];
+        } else {
+            Arrays.fill(this.sources, 0, size, 0L);
+            Arrays.fill(this.reached, 0, size, 0L);
+            Arrays.fill(this.targets, 0, size, 0L);
+        }
+    }
+
+    /*
+     * After the step k, the dilated board holds the sources dilated horizontally by k cells,
+     * which is what the rows at a vertical distance of radius - k contribute.
+     */
+    private void dilate() {
+        int size = this.height * this.words;
+        System.arraycopy(this.sources, 0, this.dilated, 0, size);
+        for (int step = 0; step <= this.infectionRadius; step++) {
+            if (step > 0) {
+                dilateRows();
+            }
+            int distance = this.infectionRadius - step;
+            for (int y = 0; y < this.height; y++) {
+                orRow(y, y - distance);
+                if (distance > 0) {
+                    orRow(y, y + distance);
+                }
+            }
+        }
+    }
+
+    /*
+     * Dilates every row of the dilated board by one cell to the left and to the right,
+     * bits are carried over between the words of a row.
+     */
+    private void dilateRows() {
+        for (int y = 0; y < this.height; y++) {
+            int row = y * this.words;
+            long previous = 0;
+            for (int word = 0; word < this.words; word++) {
+                long current = this.dilated[row + word];
+                long next = word + 1 < this.words ? this.dilated[row + word + 1] : 0;
+                this.dilated[row + word] = current | (current << 1) | (current >>> 1)
+                        | (previous >>> 63) | (next << 63);
+                previous = current;
+            }
+        }
+    }
+
+    private void orRow(int target, int source) {
+        if (source < 0 || source >= this.height) {
+            return;
+        }
+        for (int word = 0; word < this.words; word++) {
+            this.reached[target * this.words + word] |= this.dilated[source * this.words + word];
+        }
+    }
+
+    private void set(long[] board, int x, int y) {
+        board[y * this.words + (x >>> 6)] |= 1L << (x & 63);
+    }
+
+    private boolean get(long[] board, int x, int y) {
+        return (board[y * this.words + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+}
@@ -29,6 +29,10 @@ public interface Context {
     /**
      * Returns all persons to be considered when simulating the person.
      *
+     * <p>
+     * The persons may be in any order, the engines keep them in Morton order.
+     * </p>
+     *
      * @return All persons to be considered when simulating the person.
      */
     List<Person> getPopulation();
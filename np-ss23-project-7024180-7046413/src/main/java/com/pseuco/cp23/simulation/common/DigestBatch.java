@@ -0,0 +1,116 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.List;
+
+/**
+ * Advances the RNGs of a whole population at once.
+ *
+ * <p>
+ * The next digest of a person only depends on its current digest and every digest is
+ * exactly 32 bytes long, so the digests of several persons can be hashed together in
+ * the lanes of vectors. Like the vector kernel, the batch needs the module
+ * <em>jdk.incubator.vector</em> and otherwise hashes one digest after the other. Either
+ * way the digests are the same as those of the persons' own RNGs. The engine advances
+ * the batch at the beginning of a tick and then ticks every person with its digest.
+ * </p>
+ *
+ * <p>
+ * If the digest chains have been precomputed, the batch just looks the digests up, or
+ * only the draws if the chains do not store the whole digests.
+ * </p>
+ */
+public class DigestBatch {
+    private final DigestStepper stepper;
+    private final DigestChains chains;
+
+    private byte[][] digests = new byte[0][];
+    private byte[][] next = new byte[0][];
+    private int[] draws = new int[0];
+
+    /**
+     * Constructs a batch hashing the digests itself.
+     */
+    public DigestBatch() {
+        this(null);
+    }
+
+    /**
+     * Constructs a batch looking the digests up in the given chains.
+     *
+     * @param chains The precomputed digest chains, or <em>null</em> to hash the digests.
+     */
+    public DigestBatch(DigestChains chains) {
+        this.chains = chains;
+        this.stepper = chains == null ? createStepper() : null;
+    }
+
+    /*
+     * The vector stepper must not even be loaded if the module is missing.
+     */
+    static DigestStepper createStepper() {
+        if (VectorKernel.isVectorized()) {
+            return new VectorDigestStepper();
+        }
+        return new ScalarDigestStepper();
+    }
+
+    /**
+     * Computes the next digests of all persons of the population.
+     *
+     * @param population The population.
+     * @param tick       The tick the persons are about to simulate.
+     */
+    public void advance(List<Person> population, int tick) {
+        int count = population.size();
+        if (this.digests.length < count) {
+            this.digests = new byte[count][];
+            this.next = new byte[count][];
+        }
+        if (this.chains != null && !this.chains.isFull()) {
+            if (this.draws.length < count) {
+                this.draws = new int[count];
+            }
+            for (int index = 0; index < count; index++) {
+                this.draws[index] = this.chains.getDraws(population.get(index).getId(), tick);
+            }
+            return;
+        }
+        if (this.chains != null) {
+            // the persons keep their digests, so every one of them needs its own array
+            for (int index = 0; index < count; index++) {
+                this.next[index] = this.chains.get(population.get(index).getId(), tick);
+            }
+            return;
+        }
+        for (int index = 0; index < count; index++) {
+            this.digests[index] = population.get(index).getDigest();
+        }
+        this.stepper.step(this.digests, this.next, count);
+    }
+
+    /**
+     * Returns the next digest of the person at the given index of the population, the
+     * batch must not look up draws only.
+     *
+     * @param index The index of the person in the population.
+     * @return The next digest of the person.
+     */
+    public byte[] get(int index) {
+        return this.next[index];
+    }
+
+    /**
+     * Simulates a tick on the person at the given index of the population with its next
+     * digest or its next draws.
+     *
+     * @param person The person.
+     * @param index  The index of the person in the population.
+     */
+    public void tick(Person person, int index) {
+        if (this.chains != null && !this.chains.isFull()) {
+            person.tick(this.draws[index]);
+        } else {
+            person.tick(this.next[index]);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.pseuco.cp23.model.PersonInfo;
+
+/**
+ * The digests of the RNGs of all persons for a window of ticks, computed ahead of the
+ * simulation.
+ *
+ * <p>
+ * The digests of a person only depend on its seed, so the chains of all persons are
+ * independent of each other and of everything else happening in the simulation. They are
+ * computed in parallel on all cores, groups of persons at a time with the steppers of the
+ * digest batch, and stored off-heap. Only a window of ticks is stored, at most
+ * <em>WINDOW_BYTES</em> for all persons, and the engine advances the window once its
+ * current tick has passed the end. Besides the window, the current digest of every
+ * person is kept on the heap.
+ * </p>
+ *
+ * <p>
+ * The chains either store the whole digests or only the bytes the rules of a tick read
+ * (see <em>Person.RNG.DRAWS</em>). The latter take <em>3</em> instead of <em>32</em>
+ * bytes per person and tick and are read without allocating anything, but the persons
+ * advanced with them no longer know their digests.
+ * </p>
+ */
+public class DigestChains {
+    private static final int DIGEST_SIZE = 32;
+
+    /*
+     * The number of persons whose chains one task computes together.
+     */
+    private static final int GROUP_SIZE = 64;
+
+    /**
+     * The default maximal size of the window for all persons, it holds at least one tick.
+     */
+    public static final long WINDOW_BYTES = 64L << 20;
+
+    private final int ticks;
+    private final int width; // the number of bytes stored per person and tick
+    private final int numberOfPersons;
+    private final int window; // the number of ticks in the window
+    private final ByteBuffer buffer; // the value of person p for tick t is at ((t - start) * numberOfPersons + p) * width
+    private final byte[][] digests; // the digest of every person before the tick at the end of the window
+
+    private int start = 0;
+    private int end = 0;
+
+    /**
+     * Computes the first window of the digest chains of the given population.
+     *
+     * @param population The population.
+     * @param ticks      The number of ticks to compute the digests for.
+     * @param full       Whether to store the whole digests instead of the draws only.
+     */
+    public DigestChains(List<PersonInfo> population, int ticks, boolean full) {
+        this(population, ticks, full, WINDOW_BYTES);
+    }
+
+    /**
+     * Computes the first window of the digest chains of the given population, the window
+     * takes at most the given number of bytes unless a single tick takes more.
+     *
+     * @param population  The population.
+     * @param ticks       The number of ticks to compute the digests for.
+     * @param full        Whether to store the whole digests instead of the draws only.
+     * @param windowBytes The maximal size of the window.
+     */
+    public DigestChains(List<PersonInfo> population, int ticks, boolean full, long windowBytes) {
+        this.ticks = ticks;
+        this.width = full ? DIGEST_SIZE : Person.RNG.DRAWS;
+        this.numberOfPersons = population.size();
+        long bytesPerTick = Math.max(1, (long) this.numberOfPersons * this.width);
+        this.window = (int) Math.max(1, Math.min(ticks, windowBytes / bytesPerTick));
+        this.buffer = ByteBuffer.allocateDirect((int) (bytesPerTick * this.window));
+        this.digests = new byte[this.numberOfPersons][];
+        for (int id = 0; id < this.numberOfPersons; id++) {
+            this.digests[id] = population.get(id).getSeed();
+        }
+        this.advance(0);
+    }
+
+    /**
+     * Moves the window such that it starts at the given tick, unless the tick is already
+     * within the window. Nobody may read the chains meanwhile.
+     *
+     * @param tick The current tick of the simulation, the window only moves forward.
+     */
+    public void advance(int tick) {
+        if (tick < this.end) {
+            return;
+        }
+        int from = this.end;
+        int to = Math.min(tick + this.window, this.ticks);
+        int numberOfGroups = (this.numberOfPersons + GROUP_SIZE - 1) / GROUP_SIZE;
+        IntStream.range(0, numberOfGroups).parallel()
+                .forEach((int group) -> this.compute(group, from, tick, to));
+        this.start = tick;
+        this.end = to;
+    }
+
+    /*
+     * Computes the chains of the persons of the given group, the steppers are not thread-safe.
+     * The ticks before the start of the new window are hashed but not stored.
+     */
+    private void compute(int group, int from, int start, int to) {
+        DigestStepper stepper = DigestBatch.createStepper();
+        int first = group * GROUP_SIZE;
+        int count = Math.min(GROUP_SIZE, this.numberOfPersons - first);
+        byte[][] digests = new byte[count][];
+        byte[][] next = new byte[count][];
+        System.arraycopy(this.digests, first, digests, 0, count);
+        for (int tick = from; tick < to; tick++) {
+            stepper.step(digests, next, count);
+            if (tick >= start) {
+                for (int index = 0; index < count; index++) {
+                    this.buffer.put(this.offset(first + index, tick - start), next[index], 0, this.width);
+                }
+            }
+            byte[][] swap = digests;
+            digests = next;
+            next = swap;
+        }
+        System.arraycopy(digests, 0, this.digests, first, count);
+    }
+
+    /**
+     * Returns the number of ticks the chains are computed for.
+     *
+     * @return The number of ticks.
+     */
+    public int getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Returns the tick after the last tick of the window.
+     *
+     * @return The end of the window.
+     */
+    public int getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Returns whether the chains store the whole digests.
+     *
+     * @return Whether the chains store the whole digests.
+     */
+    public boolean isFull() {
+        return this.width == DIGEST_SIZE;
+    }
+
+    /**
+     * Returns the digest of the given person after the given tick, the chains must store
+     * the whole digests.
+     *
+     * @param id   The id of the person.
+     * @param tick The tick, within the window.
+     * @return The digest of the person's RNG after the tick.
+     */
+    public byte[] get(int id, int tick) {
+        assert this.isFull();
+        byte[] digest = new byte[DIGEST_SIZE];
+        this.buffer.get(this.offset(id, tick - this.start), digest);
+        return digest;
+    }
+
+    /**
+     * Returns the draws of the given person after the given tick, i.e., the first bytes
+     * of its digest packed as by <em>Person.RNG.pack</em>.
+     *
+     * @param id   The id of the person.
+     * @param tick The tick, within the window.
+     * @return The draws of the person's RNG after the tick.
+     */
+    public int getDraws(int id, int tick) {
+        assert tick >= this.start && tick < this.end;
+        int offset = this.offset(id, tick - this.start);
+        return (this.buffer.get(offset) & 0xFF)
+                | (this.buffer.get(offset + 1) & 0xFF) << 8
+                | (this.buffer.get(offset + 2) & 0xFF) << 16;
+    }
+
+    private int offset(int id, int slot) {
+        return (slot * this.numberOfPersons + id) * this.width;
+    }
+}
@@ -0,0 +1,15 @@
+package com.pseuco.cp23.simulation.common;
+
+/**
+ * Computes the next digests of several RNGs, the inner loop of the digest batch.
+ */
+interface DigestStepper {
+    /**
+     * Stores the SHA-256 digest of every given digest into a fresh array.
+     *
+     * @param digests The current digests, each of them 32 bytes long.
+     * @param next    The array receiving the next digests.
+     * @param count   The number of digests.
+     */
+    void step(byte[][] digests, byte[][] next, int count);
+}
@@ -0,0 +1,150 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The positions of the persons which may infect others in the current tick, i.e., of
+ * the infectious persons which are coughing.
+ *
+ * <p>
+ * Only susceptible persons which are breathing next to an emitter can get infected,
+ * so the infection phase of a tick only has to check these persons against the nearby
+ * emitters instead of checking all pairs of persons. If there are no emitters at all,
+ * the infection phase can be skipped. The engines collect the emitters while ticking
+ * the persons, which visits every person anyway.
+ * </p>
+ */
+public class Emitters implements InfectionKernel {
+    /*
+     * Up to this many emitters we simply check all of them instead of looking up buckets.
+     */
+    private static final int LINEAR_LIMIT = 16;
+
+    private final int infectionRadius;
+    private final int bucketSize;
+
+    private final List<int[]> positions = new ArrayList<>();
+    private final Map<Long, List<int[]>> buckets = new HashMap<>();
+
+    /**
+     * Constructs an empty set of emitters.
+     *
+     * @param infectionRadius The infection radius of the scenario.
+     */
+    public Emitters(int infectionRadius) {
+        this.infectionRadius = infectionRadius;
+        this.bucketSize = infectionRadius + 1;
+    }
+
+    /**
+     * Removes all emitters, e.g., before the next tick.
+     */
+    @Override
+    public void clear() {
+        this.positions.clear();
+        this.buckets.clear();
+    }
+
+    /**
+     * Adds an emitter at the given position.
+     *
+     * @param x The <em>x</em>-coordinate of the emitter.
+     * @param y The <em>y</em>-coordinate of the emitter.
+     */
+    public void add(int x, int y) {
+        int[] position = new int[] { x, y };
+        this.positions.add(position);
+        if (this.positions.size() == LINEAR_LIMIT + 1) {
+            for (int[] other : this.positions) {
+                bucket(other[0] / this.bucketSize, other[1] / this.bucketSize).add(other);
+            }
+        } else if (this.positions.size() > LINEAR_LIMIT) {
+            bucket(x / this.bucketSize, y / this.bucketSize).add(position);
+        }
+    }
+
+    /**
+     * Adds the person as an emitter if it is infectious and coughing.
+     *
+     * @param person The person.
+     */
+    @Override
+    public void offer(Person person) {
+        if (person.isInfectious() && person.isCoughing()) {
+            this.add(person.getX(), person.getY());
+        }
+    }
+
+    /**
+     * Returns whether there are no emitters.
+     *
+     * @return Whether there are no emitters.
+     */
+    public boolean isEmpty() {
+        return this.positions.isEmpty();
+    }
+
+    /**
+     * Returns whether an emitter is within the infection radius of the given position.
+     *
+     * @param x The <em>x</em>-coordinate of the position.
+     * @param y The <em>y</em>-coordinate of the position.
+     * @return Whether an emitter is within the infection radius of the position.
+     */
+    public boolean reaches(int x, int y) {
+        if (this.positions.size() <= LINEAR_LIMIT) {
+            return reaches(this.positions, x, y);
+        }
+        // the buckets are larger than the infection radius, so we only need to check the adjacent ones
+        int bucketX = x / this.bucketSize;
+        int bucketY = y / this.bucketSize;
+        for (int deltaY = -1; deltaY <= 1; deltaY++) {
+            for (int deltaX = -1; deltaX <= 1; deltaX++) {
+                List<int[]> candidates = this.buckets.get(key(bucketX + deltaX, bucketY + deltaY));
+                if (candidates != null && reaches(candidates, x, y)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Infects every susceptible person of the population which is breathing within the
+     * infection radius of an emitter.
+     *
+     * @param population The population.
+     */
+    @Override
+    public void infect(List<Person> population) {
+        if (this.isEmpty()) {
+            return;
+        }
+        for (Person person : population) {
+            if (person.isSusceptible() && person.isBreathing()
+                    && this.reaches(person.getX(), person.getY())) {
+                person.infect();
+            }
+        }
+    }
+
+    private boolean reaches(List<int[]> candidates, int x, int y) {
+        for (int[] position : candidates) {
+            if (Math.abs(position[0] - x) + Math.abs(position[1] - y) <= this.infectionRadius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<int[]> bucket(int bucketX, int bucketY) {
+        return this.buckets.computeIfAbsent(key(bucketX, bucketY), (Long key) -> new ArrayList<>());
+    }
+
+    private static long key(int bucketX, int bucketY) {
+        return ((long) bucketX << 32) | (bucketY & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,70 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.List;
+
+/**
+ * Computes the infection phase of a tick.
+ *
+ * <p>
+ * While ticking the persons, the engine offers every person to the kernel, afterwards
+ * the kernel infects every susceptible person breathing within the infection radius of
+ * an infectious person which is coughing. All kernels give the same results.
+ * </p>
+ */
+public interface InfectionKernel {
+    /**
+     * The available kernels.
+     */
+    enum Type {
+        /**
+         * Checks the susceptible persons against the nearby emitters, see <em>Emitters</em>.
+         */
+        EMITTERS,
+
+        /**
+         * Dilates a bitboard of the emitters, see <em>BitboardKernel</em>.
+         */
+        BITBOARD,
+
+        /**
+         * Checks the emitters against vectors of susceptible persons, see <em>VectorKernel</em>.
+         */
+        VECTOR;
+
+        /**
+         * Creates a kernel of this type.
+         *
+         * @param infectionRadius The infection radius of the scenario.
+         * @return The kernel.
+         */
+        public InfectionKernel create(int infectionRadius) {
+            switch (this) {
+                case BITBOARD:
+                    return new BitboardKernel(infectionRadius);
+                case VECTOR:
+                    return new VectorKernel(infectionRadius);
+                default:
+                    return new Emitters(infectionRadius);
+            }
+        }
+    }
+
+    /**
+     * Forgets the persons offered for the previous tick.
+     */
+    void clear();
+
+    /**
+     * Offers a person after it has been ticked.
+     *
+     * @param person The person.
+     */
+    void offer(Person person);
+
+    /**
+     * Infects the persons of the population reached by the offered persons.
+     *
+     * @param population The population.
+     */
+    void infect(List<Person> population);
+}
@@ -0,0 +1,207 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+
+/**
+ * Decides which persons may still influence the statistics of the queries.
+ *
+ * <p>
+ * Without a trace, the statistics of the queries are the only output. Within a number of
+ * ticks, information travels at most as far as the padding the rocket requires for
+ * simulating that many ticks without synchronizing. A person farther away from every
+ * query area can neither enter one nor infect or block anybody who does before the run
+ * ends. Neither can a person from whose cell no information may propagate into a query
+ * area at all, see <em>Utils.mayPropagateFrom</em>. The region information may propagate
+ * from is flooded once from the free cells of the query areas, restricted to the cells
+ * close enough to matter within the whole run. Such persons can be dropped from the
+ * simulation, the remaining persons behave differently only where it cannot be observed.
+ * </p>
+ */
+public class LightCone {
+    private final List<Rectangle> areas = new ArrayList<>();
+    private final Parameters parameters;
+
+    private final Rectangle bounds; // the cells which may matter within the whole run
+    private final BitSet region; // the cells of the bounds information may propagate from, null if all
+
+    /**
+     * Constructs the light cone of the queries of the given scenario over all its ticks.
+     *
+     * @param scenario The scenario.
+     */
+    public LightCone(Scenario scenario) {
+        this.parameters = scenario.getParameters();
+        for (Query query : scenario.getQueries().values()) {
+            this.areas.add(query.getArea());
+        }
+
+        int reach = getReach(this.parameters, scenario.getTicks());
+        Rectangle grid = scenario.getGrid();
+        int fromX = grid.getBottomRight().getX();
+        int fromY = grid.getBottomRight().getY();
+        int toX = grid.getTopLeft().getX();
+        int toY = grid.getTopLeft().getY();
+        for (Rectangle area : this.areas) {
+            fromX = Math.min(fromX, Math.max(area.getTopLeft().getX() - reach, grid.getTopLeft().getX()));
+            fromY = Math.min(fromY, Math.max(area.getTopLeft().getY() - reach, grid.getTopLeft().getY()));
+            toX = Math.max(toX, Math.min(area.getBottomRight().getX() + reach, grid.getBottomRight().getX()));
+            toY = Math.max(toY, Math.min(area.getBottomRight().getY() + reach, grid.getBottomRight().getY()));
+        }
+        this.bounds = new Rectangle(new XY(fromX, fromY), new XY(Math.max(toX - fromX, 0), Math.max(toY - fromY, 0)));
+
+        List<Rectangle> obstacles = new ArrayList<>();
+        for (Rectangle obstacle : scenario.getObstacles()) {
+            if (obstacle.overlaps(this.bounds)) {
+                obstacles.add(obstacle);
+            }
+        }
+        // without obstacles every cell is connected to its neighbours
+        this.region = obstacles.isEmpty() ? null : flood(obstacles);
+    }
+
+    /**
+     * Returns how far information may travel within the given number of ticks, i.e., the
+     * padding the rocket requires for simulating that many ticks without synchronizing.
+     *
+     * @param parameters The parameters of the scenario.
+     * @param ticks      The number of ticks.
+     * @return The distance along each axis.
+     */
+    public static int getReach(Parameters parameters, int ticks) {
+        return 2 * ticks + parameters.getInfectionRadius()
+                * (int) Math.ceil((double) ticks / parameters.getIncubationTime());
+    }
+
+    /*
+     * Floods the bounds from the free cells of the query areas with the offsets of mayPropagateFrom(...).
+     */
+    private BitSet flood(List<Rectangle> obstacles) {
+        int width = this.bounds.getSize().getX();
+        int height = this.bounds.getSize().getY();
+        int originX = this.bounds.getTopLeft().getX();
+        int originY = this.bounds.getTopLeft().getY();
+
+        BitSet blocked = new BitSet(width * height);
+        for (Rectangle obstacle : obstacles) {
+            Rectangle covered = obstacle.intersect(this.bounds);
+            for (int y = covered.getTopLeft().getY(); y < covered.getBottomRight().getY(); y++) {
+                int row = (y - originY) * width - originX;
+                blocked.set(row + covered.getTopLeft().getX(), row + covered.getBottomRight().getX());
+            }
+        }
+
+        int infectionRadius = this.parameters.getInfectionRadius();
+        List<int[]> offsets = new ArrayList<>();
+        for (int deltaX = -infectionRadius; deltaX <= infectionRadius; deltaX++) {
+            for (int deltaY = -infectionRadius; deltaY <= infectionRadius; deltaY++) {
+                if ((deltaX != 0 || deltaY != 0)
+                        && (Math.abs(deltaX) + Math.abs(deltaY) <= infectionRadius
+                                || (Math.abs(deltaX) <= 1 && Math.abs(deltaY) <= 1))) {
+                    offsets.add(new int[] { deltaX, deltaY });
+                }
+            }
+        }
+
+        BitSet region = new BitSet(width * height);
+        int[] queue = new int[64];
+        int tail = 0;
+        for (Rectangle area : this.areas) {
+            if (!area.overlaps(this.bounds)) {
+                continue;
+            }
+            Rectangle cells = area.intersect(this.bounds);
+            for (int y = cells.getTopLeft().getY(); y < cells.getBottomRight().getY(); y++) {
+                for (int x = cells.getTopLeft().getX(); x < cells.getBottomRight().getX(); x++) {
+                    int cell = (y - originY) * width + (x - originX);
+                    if (!blocked.get(cell) && !region.get(cell)) {
+                        region.set(cell);
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, 2 * tail);
+                        }
+                        queue[tail++] = cell;
+                    }
+                }
+            }
+        }
+
+        int head = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            for (int[] offset : offsets) {
+                int neighbourX = x + offset[0];
+                int neighbourY = y + offset[1];
+                if (neighbourX < 0 || neighbourX >= width || neighbourY < 0 || neighbourY >= height) {
+                    continue;
+                }
+                int neighbour = neighbourY * width + neighbourX;
+                if (!blocked.get(neighbour) && !region.get(neighbour)) {
+                    region.set(neighbour);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, 2 * tail);
+                    }
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Returns whether a person on the given cell may influence the statistics of a query
+     * within the given number of ticks.
+     *
+     * @param x     The <em>x</em>-coordinate of the cell.
+     * @param y     The <em>y</em>-coordinate of the cell.
+     * @param ticks The number of remaining ticks.
+     * @return Whether the person may influence the statistics.
+     */
+    public boolean mayReachQueries(int x, int y, int ticks) {
+        if (!this.bounds.contains(x, y)) {
+            return false;
+        }
+        if (this.region != null) {
+            int width = this.bounds.getSize().getX();
+            int cell = (y - this.bounds.getTopLeft().getY()) * width + (x - this.bounds.getTopLeft().getX());
+            if (!this.region.get(cell)) {
+                return false;
+            }
+        }
+        int reach = getReach(this.parameters, ticks);
+        for (Rectangle area : this.areas) {
+            if (x >= area.getTopLeft().getX() - reach && x < area.getBottomRight().getX() + reach
+                    && y >= area.getTopLeft().getY() - reach && y < area.getBottomRight().getY() + reach) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the persons of the given population which may influence the statistics of a
+     * query within the given number of ticks, in the order of the population.
+     *
+     * @param population The population.
+     * @param ticks      The number of remaining ticks.
+     * @return The persons which have to be simulated further.
+     */
+    public List<Person> prune(List<Person> population, int ticks) {
+        List<Person> result = new ArrayList<>();
+        for (Person person : population) {
+            if (mayReachQueries(person.getX(), person.getY(), ticks)) {
+                result.add(person);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package com.pseuco.cp23.simulation.common;
+
+/**
+ * The optional settings of the engines.
+ *
+ * <p>
+ * The options are immutable, the <em>with</em> methods return modified copies, e.g.,
+ * <em>new Options().withStop(stop)</em>. Every engine documents which options it honors
+ * and ignores the others, the defaults give the behavior of the reference implementation.
+ * </p>
+ */
+public class Options {
+    private final InfectionKernel.Type kernel;
+    private final boolean precomputeDigests;
+    private final boolean rebalance;
+    private final StopCondition stop;
+
+    /**
+     * Constructs the default options: the emitters kernel, no precomputed digests, no
+     * rebalancing and no stop condition.
+     */
+    public Options() {
+        this(InfectionKernel.Type.EMITTERS, false, false, StopCondition.NEVER);
+    }
+
+    private Options(InfectionKernel.Type kernel, boolean precomputeDigests, boolean rebalance, StopCondition stop) {
+        this.kernel = kernel;
+        this.precomputeDigests = precomputeDigests;
+        this.rebalance = rebalance;
+        this.stop = stop;
+    }
+
+    /**
+     * Returns the type of the kernel computing the infection phase.
+     *
+     * @return The type of the infection kernel.
+     */
+    public InfectionKernel.Type getKernel() {
+        return this.kernel;
+    }
+
+    /**
+     * Returns whether the digest chains of all persons are computed before the ticks.
+     *
+     * @return Whether to precompute the digest chains.
+     */
+    public boolean getPrecomputeDigests() {
+        return this.precomputeDigests;
+    }
+
+    /**
+     * Returns whether the layout of the patches is rebalanced during the run.
+     *
+     * @return Whether to rebalance the layout.
+     */
+    public boolean getRebalance() {
+        return this.rebalance;
+    }
+
+    /**
+     * Returns the condition ending the run early, <em>StopCondition.NEVER</em> by default.
+     *
+     * @return The stop condition.
+     */
+    public StopCondition getStop() {
+        return this.stop;
+    }
+
+    /**
+     * Returns whether the run may end before the last tick of the scenario.
+     *
+     * @return Whether there is a stop condition.
+     */
+    public boolean hasStop() {
+        return this.stop != StopCondition.NEVER;
+    }
+
+    /**
+     * Returns a copy of the options using the given kernel instead.
+     *
+     * @param kernel The type of the infection kernel.
+     * @return The options with the given kernel.
+     */
+    public Options withKernel(InfectionKernel.Type kernel) {
+        return new Options(kernel, this.precomputeDigests, this.rebalance, this.stop);
+    }
+
+    /**
+     * Returns a copy of the options which precompute the digest chains or not.
+     *
+     * @param precomputeDigests Whether to precompute the digest chains.
+     * @return The options with the given setting.
+     */
+    public Options withPrecomputeDigests(boolean precomputeDigests) {
+        return new Options(this.kernel, precomputeDigests, this.rebalance, this.stop);
+    }
+
+    /**
+     * Returns a copy of the options which rebalance the layout or not.
+     *
+     * @param rebalance Whether to rebalance the layout.
+     * @return The options with the given setting.
+     */
+    public Options withRebalance(boolean rebalance) {
+        return new Options(this.kernel, this.precomputeDigests, rebalance, this.stop);
+    }
+
+    /**
+     * Returns a copy of the options using the given stop condition instead.
+     *
+     * @param stop The stop condition, <em>StopCondition.NEVER</em> to simulate all ticks.
+     * @return The options with the given stop condition.
+     */
+    public Options withStop(StopCondition stop) {
+        return new Options(this.kernel, this.precomputeDigests, this.rebalance, stop);
+    }
+}
@@ -3,6 +3,7 @@ package com.pseuco.cp23.simulation.common;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Comparator;
+import java.util.List;
 
 import com.pseuco.cp23.model.InfectionState;
 import com.pseuco.cp23.model.Parameters;
@@ -15,6 +16,28 @@ import com.pseuco.cp23.model.XY;
  * Represents a person and contains the necessary simulation functionality.
  */
 public class Person {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /*
+     * The velocity and the resulting direction for every pair of direction and acceleration,
+     * indexed by direction.ordinal() * DIRECTIONS.length + acceleration.ordinal().
+     */
+    private static final int[] VELOCITY_X = new int[DIRECTIONS.length * DIRECTIONS.length];
+    private static final int[] VELOCITY_Y = new int[DIRECTIONS.length * DIRECTIONS.length];
+    private static final Direction[] TURNS = new Direction[DIRECTIONS.length * DIRECTIONS.length];
+
+    static {
+        for (Direction direction : DIRECTIONS) {
+            for (Direction acceleration : DIRECTIONS) {
+                int move = direction.ordinal() * DIRECTIONS.length + acceleration.ordinal();
+                XY velocity = direction.getVector().add(acceleration.getVector()).limit(-1, 1);
+                VELOCITY_X[move] = velocity.getX();
+                VELOCITY_Y[move] = velocity.getY();
+                TURNS[move] = Direction.fromVector(velocity);
+            }
+        }
+    }
+
     /**
      * A comparator comparing persons by their ids.
      */
@@ -25,12 +48,46 @@ public class Person {
         }
     }
 
+    /**
+     * A comparator comparing persons by the Z-order (Morton order) of their positions,
+     * persons close to each other on the grid are mostly close to each other in this order.
+     */
+    public static class MortonComparator implements Comparator<Person> {
+        @Override
+        public int compare(Person o1, Person o2) {
+            return Long.compare(key(o1.getX(), o1.getY()), key(o2.getX(), o2.getY()));
+        }
+
+        /*
+         * Interleaves the bits of the coordinates, which are never negative.
+         */
+        private static long key(int x, int y) {
+            return spread(x) | (spread(y) << 1);
+        }
+
+        private static long spread(int value) {
+            long bits = value & 0xFFFFFFFFL;
+            bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+            bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+            bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+            bits = (bits | (bits << 2)) & 0x3333333333333333L;
+            bits = (bits | (bits << 1)) & 0x5555555555555555L;
+            return bits;
+        }
+    }
+
     public static class RNG {
+        /**
+         * The number of leading bytes of a digest the rules of a tick read.
+         */
+        public static final int DRAWS = 3;
+
         private final MessageDigest messageDigest;
 
         private final Parameters parameters;
 
         private byte[] digest;
+        private int draws; // the first DRAWS bytes of the digest, see pack
 
         public RNG(byte[] seed, Parameters parameters) {
             try {
@@ -40,10 +97,44 @@ public class Person {
             }
             this.parameters = parameters;
             this.digest = seed;
+            this.draws = pack(seed);
+        }
+
+        /**
+         * Packs the bytes of a digest the rules read into an integer, the byte at position
+         * <em>i</em> goes into the bits <em>8i</em> to <em>8i + 7</em>.
+         *
+         * @param digest The digest.
+         * @return The draws of the digest.
+         */
+        public static int pack(byte[] digest) {
+            return (digest[0] & 0xFF) | (digest[1] & 0xFF) << 8 | (digest[2] & 0xFF) << 16;
         }
 
         public void tick() {
             this.digest = messageDigest.digest(this.digest);
+            this.draws = pack(this.digest);
+        }
+
+        /**
+         * Advances the RNG to a digest computed elsewhere, e.g., by a digest batch.
+         *
+         * @param digest The next digest, i.e., the SHA-256 digest of the current one.
+         */
+        public void advance(byte[] digest) {
+            this.digest = digest;
+            this.draws = pack(digest);
+        }
+
+        /**
+         * Advances the RNG to the draws of a digest computed elsewhere, e.g., by digest
+         * chains storing only the draws. The RNG does not know its digest afterwards, it
+         * keeps the previous one, so it has to be advanced this way from then on.
+         *
+         * @param draws The draws of the next digest, see <em>pack</em>.
+         */
+        public void advance(int draws) {
+            this.draws = draws;
         }
 
         public byte[] getDigest() {
@@ -51,6 +142,9 @@ public class Person {
         }
 
         public int getUnsignedByte(int position) {
+            if (position < DRAWS) {
+                return (this.draws >>> (8 * position)) & 0xFF;
+            }
             return this.digest[position] & 0xFF;
         }
 
@@ -64,10 +158,10 @@ public class Person {
 
         public Direction getAcceleration() {
             final int index = this.getUnsignedByte(2) / this.parameters.getAccelerationDivisor();
-            if (index >= Direction.values().length) {
+            if (index >= DIRECTIONS.length) {
                 return Direction.NONE;
             }
-            return Direction.values()[index];
+            return DIRECTIONS[index];
         }
     }
 
@@ -80,8 +174,14 @@ public class Person {
 
     private String name = "";
 
+    // the position is kept as coordinates, the XY is only created on demand
+    private int x;
+    private int y;
     private XY position;
-    private XY ghostPosition = null;
+
+    private boolean ghost = false;
+    private int ghostX;
+    private int ghostY;
 
     private Direction direction = Direction.NONE;
 
@@ -102,6 +202,8 @@ public class Person {
         this.parameters = parameters;
         this.rng = new RNG(info.getSeed(), this.parameters);
         this.position = info.getPosition();
+        this.x = this.position.getX();
+        this.y = this.position.getY();
         this.direction = info.getDirection();
         this.state = info.getInfectionState().getState();
         this.inStateSince = info.getInfectionState().getInStateSince();
@@ -132,16 +234,37 @@ public class Person {
      * @return The current position of the person.
      */
     public XY getPosition() {
+        if (this.position == null) {
+            this.position = new XY(this.x, this.y);
+        }
         return this.position;
     }
 
+    /**
+     * Returns the <em>x</em>-coordinate of the current position of the person.
+     *
+     * @return The <em>x</em>-coordinate of the current position of the person.
+     */
+    public int getX() {
+        return this.x;
+    }
+
+    /**
+     * Returns the <em>y</em>-coordinate of the current position of the person.
+     *
+     * @return The <em>y</em>-coordinate of the current position of the person.
+     */
+    public int getY() {
+        return this.y;
+    }
+
     /**
      * Returns the position of the person's ghost if it has one.
      *
      * @return The position of the person's ghost if it has one.
      */
     public XY getGhostPosition() {
-        return this.ghostPosition;
+        return this.ghost ? new XY(this.ghostX, this.ghostY) : null;
     }
 
     /**
@@ -150,7 +273,25 @@ public class Person {
      * @return Whether the person has a ghost.
      */
     public boolean hasGhost() {
-        return this.ghostPosition != null;
+        return this.ghost;
+    }
+
+    /**
+     * Returns the direction the person is moving in.
+     *
+     * @return The direction the person is moving in.
+     */
+    public Direction getDirection() {
+        return this.direction;
+    }
+
+    /**
+     * Returns the current digest of the person's RNG.
+     *
+     * @return The current digest of the person's RNG.
+     */
+    public byte[] getDigest() {
+        return this.rng.getDigest();
     }
 
     /**
@@ -162,6 +303,15 @@ public class Person {
         return this.state;
     }
 
+    /**
+     * Returns for how many ticks the person has been in its current infection state.
+     *
+     * @return For how many ticks the person has been in its current infection state.
+     */
+    public int getInStateSince() {
+        return this.inStateSince;
+    }
+
     /**
      * Sets the infection state of the person and resets the <em>inStateSince</em>-counter.
      *
@@ -243,7 +393,7 @@ public class Person {
     public PersonInfo getInfo() {
         return new PersonInfo(
                 this.name,
-                this.position,
+                this.getPosition(),
                 this.rng.getDigest(),
                 new InfectionState(this.state, this.inStateSince),
                 this.direction
@@ -264,7 +414,7 @@ public class Person {
      * Removes the ghost of the person.
      */
     public void bustGhost() {
-        this.ghostPosition = null;
+        this.ghost = false;
     }
 
     /**
@@ -272,10 +422,39 @@ public class Person {
      */
     public void tick() {
         this.rng.tick();
+        this.simulate();
+    }
 
+    /**
+     * Simulates a tick on the person whose next digest has already been computed.
+     *
+     * @param digest The next digest of the person's RNG.
+     */
+    public void tick(byte[] digest) {
+        this.rng.advance(digest);
+        this.simulate();
+    }
+
+    /**
+     * Simulates a tick on the person whose next draws have already been computed, the
+     * person does not know its digest afterwards (see <em>RNG.advance</em>).
+     *
+     * @param draws The draws of the next digest of the person's RNG.
+     */
+    public void tick(int draws) {
+        this.rng.advance(draws);
+        this.simulate();
+    }
+
+    /*
+     * The remainder of a tick after the RNG has been advanced.
+     */
+    private void simulate() {
         this.inStateSince++;
 
-        this.ghostPosition = this.position;
+        this.ghost = true;
+        this.ghostX = this.x;
+        this.ghostY = this.y;
 
         if (this.isInfected() && this.inStateSince >= this.parameters.getIncubationTime()) {
             this.setState(InfectionState.State.INFECTIOUS);
@@ -283,35 +462,39 @@ public class Person {
             this.setState(InfectionState.State.RECOVERED);
         }
 
-        final Direction acceleration = this.rng.getAcceleration();
-        final XY velocity = this.direction.getVector().add(acceleration.getVector()).limit(-1, 1);
-        final XY position = this.position.add(velocity);
+        final int move = this.direction.ordinal() * DIRECTIONS.length + this.rng.getAcceleration().ordinal();
+        final int x = this.x + VELOCITY_X[move];
+        final int y = this.y + VELOCITY_Y[move];
 
         // check whether we would would bump into a wall
-        if (!this.context.getGrid().contains(position)) {
+        if (!this.context.getGrid().contains(x, y)) {
             this.direction = Direction.NONE;
             return;
         }
 
         // check whether we would bump into an obstacle
-        if (this.context.getObstacles().stream().anyMatch(
-            (Rectangle rectangle) -> rectangle.contains(position)
-        )) {
-            this.direction = Direction.NONE;
-            return;
+        final List<Rectangle> obstacles = this.context.getObstacles();
+        for (int index = 0; index < obstacles.size(); index++) {
+            if (obstacles.get(index).contains(x, y)) {
+                this.direction = Direction.NONE;
+                return;
+            }
         }
 
         // check whether we would bump into another person
-        if (this.context.getPopulation().stream().anyMatch(
-            (Person person) -> person.getPosition().equals(position)
-                    || (person.hasGhost()
-                            && person.getGhostPosition().equals(position))
-        )) {
-            this.direction = Direction.NONE;
-            return;
+        final List<Person> population = this.context.getPopulation();
+        for (int index = 0; index < population.size(); index++) {
+            final Person person = population.get(index);
+            if ((person.x == x && person.y == y)
+                    || (person.ghost && person.ghostX == x && person.ghostY == y)) {
+                this.direction = Direction.NONE;
+                return;
+            }
         }
 
-        this.direction = Direction.fromVector(velocity);
-        this.position = position;
+        this.direction = TURNS[move];
+        this.x = x;
+        this.y = y;
+        this.position = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Statistics;
+
+/**
+ * Counts the persons of every infection state within every query area, updating the
+ * counts only for the persons which changed since the previous tick.
+ *
+ * <p>
+ * The query areas are rectangles, so a cell lies within a query area if and only if its
+ * column and its row do. For every column and every row of the grid, the counters keep a
+ * bitmask of the queries containing it, the queries of a cell are then the intersection of
+ * two masks. The counters remember the position and the state of every person at the
+ * previous tick. If neither changed, or a person moved within the same queries, there is
+ * nothing to update, otherwise only the counts of the queries the person left or entered
+ * change. The counters are tied to the order of the population, after changing the
+ * population they have to be reset.
+ * </p>
+ */
+public class QueryCounters {
+    private static final int STATES = InfectionState.State.values().length;
+
+    private final List<String> keys = new ArrayList<>();
+    private final int words; // words per mask
+
+    private final int fromX;
+    private final int fromY;
+    private final long[] columns;
+    private final long[] rows;
+
+    private final long[] counts; // the count of the state s within the query q is at q * STATES + s
+
+    private int[] lastX = new int[0];
+    private int[] lastY = new int[0];
+    private byte[] lastState = new byte[0];
+
+    /**
+     * Constructs counters for the given queries, which only count the persons within the
+     * given area.
+     *
+     * @param queries The queries.
+     * @param grid    The grid the persons move on.
+     * @param owned   The area whose persons are counted, e.g., the area owned by a patch.
+     */
+    public QueryCounters(Map<String, Query> queries, Rectangle grid, Rectangle owned) {
+        this.words = Math.max(1, (queries.size() + 63) >>> 6);
+        this.fromX = grid.getTopLeft().getX();
+        this.fromY = grid.getTopLeft().getY();
+        this.columns = new long[grid.getSize().getX() * this.words];
+        this.rows = new long[grid.getSize().getY() * this.words];
+        this.counts = new long[queries.size() * STATES];
+
+        int index = 0;
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            this.keys.add(entry.getKey());
+            Rectangle area = entry.getValue().getArea();
+            if (area.overlaps(owned) && area.overlaps(grid)) {
+                Rectangle counted = area.intersect(owned).intersect(grid);
+                for (int x = counted.getTopLeft().getX(); x < counted.getBottomRight().getX(); x++) {
+                    this.columns[(x - this.fromX) * this.words + (index >>> 6)] |= 1L << (index & 63);
+                }
+                for (int y = counted.getTopLeft().getY(); y < counted.getBottomRight().getY(); y++) {
+                    this.rows[(y - this.fromY) * this.words + (index >>> 6)] |= 1L << (index & 63);
+                }
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Counts the given population from scratch.
+     *
+     * @param population The population.
+     */
+    public void reset(List<Person> population) {
+        Arrays.fill(this.counts, 0);
+        int size = population.size();
+        this.lastX = new int[size];
+        this.lastY = new int[size];
+        this.lastState = new byte[size];
+        for (int index = 0; index < size; index++) {
+            Person person = population.get(index);
+            this.lastX[index] = person.getX();
+            this.lastY[index] = person.getY();
+            this.lastState[index] = (byte) person.getState().ordinal();
+            this.count(this.lastX[index], this.lastY[index], this.lastState[index], 1);
+        }
+    }
+
+    /**
+     * Updates the counts for the persons which moved or changed their state since the
+     * previous update, the population must be the same as for the last reset.
+     *
+     * @param population The population.
+     */
+    public void update(List<Person> population) {
+        for (int index = 0; index < this.lastX.length; index++) {
+            Person person = population.get(index);
+            int x = person.getX();
+            int y = person.getY();
+            int state = person.getState().ordinal();
+            int lastX = this.lastX[index];
+            int lastY = this.lastY[index];
+            int lastState = this.lastState[index];
+            if (x == lastX && y == lastY && state == lastState) {
+                continue;
+            }
+            if (state != lastState || !this.sameQueries(x, y, lastX, lastY)) {
+                this.count(lastX, lastY, lastState, -1);
+                this.count(x, y, state, 1);
+            }
+            this.lastX[index] = x;
+            this.lastY[index] = y;
+            this.lastState[index] = (byte) state;
+        }
+    }
+
+    /**
+     * Appends the current counts to the statistics of every query.
+     *
+     * @param statistics The statistics for every query.
+     */
+    public void appendTo(Map<String, List<Statistics>> statistics) {
+        for (int query = 0; query < this.keys.size(); query++) {
+            int offset = query * STATES;
+            statistics.get(this.keys.get(query)).add(new Statistics(
+                    this.counts[offset + InfectionState.State.SUSCEPTIBLE.ordinal()],
+                    this.counts[offset + InfectionState.State.INFECTED.ordinal()],
+                    this.counts[offset + InfectionState.State.INFECTIOUS.ordinal()],
+                    this.counts[offset + InfectionState.State.RECOVERED.ordinal()]
+            ));
+        }
+    }
+
+    /**
+     * Copies the current counts to the given array. The queries are in the iteration order
+     * of the map the counters were constructed with, the count of the state <em>s</em>
+     * within the query <em>q</em> goes to <em>offset + q * 4 + s</em>.
+     *
+     * @param values The array to copy the counts to.
+     * @param offset The index of the first count in the array.
+     */
+    public void copyTo(long[] values, int offset) {
+        System.arraycopy(this.counts, 0, values, offset, this.counts.length);
+    }
+
+    private boolean sameQueries(int x, int y, int otherX, int otherY) {
+        int column = (x - this.fromX) * this.words;
+        int row = (y - this.fromY) * this.words;
+        int otherColumn = (otherX - this.fromX) * this.words;
+        int otherRow = (otherY - this.fromY) * this.words;
+        for (int word = 0; word < this.words; word++) {
+            if ((this.columns[column + word] & this.rows[row + word])
+                    != (this.columns[otherColumn + word] & this.rows[otherRow + word])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void count(int x, int y, int state, int delta) {
+        int column = (x - this.fromX) * this.words;
+        int row = (y - this.fromY) * this.words;
+        for (int word = 0; word < this.words; word++) {
+            long mask = this.columns[column + word] & this.rows[row + word];
+            while (mask != 0) {
+                int query = (word << 6) + Long.numberOfTrailingZeros(mask);
+                this.counts[query * STATES + state] += delta;
+                mask &= mask - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.pseuco.cp23.simulation.common;
+
+/**
+ * Marks the targets within the infection radius of an emitter, the inner loop of the
+ * vector kernel.
+ */
+interface ReachMarker {
+    /**
+     * Sets the hit of every target whose Manhattan distance to the emitter is at most the
+     * infection radius to one.
+     *
+     * @param emitterX        The <em>x</em>-coordinate of the emitter.
+     * @param emitterY        The <em>y</em>-coordinate of the emitter.
+     * @param targetsX        The <em>x</em>-coordinates of the targets.
+     * @param targetsY        The <em>y</em>-coordinates of the targets.
+     * @param hits            The hits of the targets.
+     * @param count           The number of targets.
+     * @param infectionRadius The infection radius.
+     */
+    void mark(int emitterX, int emitterY, int[] targetsX, int[] targetsY, int[] hits, int count,
+            int infectionRadius);
+}
@@ -0,0 +1,26 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes one digest after the other with a message digest, like the RNG itself.
+ */
+class ScalarDigestStepper implements DigestStepper {
+    private final MessageDigest messageDigest;
+
+    ScalarDigestStepper() {
+        try {
+            this.messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException error) {
+            throw new RuntimeException(error);
+        }
+    }
+
+    @Override
+    public void step(byte[][] digests, byte[][] next, int count) {
+        for (int index = 0; index < count; index++) {
+            next[index] = this.messageDigest.digest(digests[index]);
+        }
+    }
+}
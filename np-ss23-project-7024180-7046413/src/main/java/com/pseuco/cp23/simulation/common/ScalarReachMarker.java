@@ -0,0 +1,16 @@
+package com.pseuco.cp23.simulation.common;
+
+/**
+ * The plain loop used if the vector API is not available.
+ */
+class ScalarReachMarker implements ReachMarker {
+    @Override
+    public void mark(int emitterX, int emitterY, int[] targetsX, int[] targetsY, int[] hits, int count,
+            int infectionRadius) {
+        for (int index = 0; index < count; index++) {
+            if (Math.abs(targetsX[index] - emitterX) + Math.abs(targetsY[index] - emitterY) <= infectionRadius) {
+                hits[index] = 1;
+            }
+        }
+    }
+}
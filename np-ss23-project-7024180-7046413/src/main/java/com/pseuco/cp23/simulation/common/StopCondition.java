@@ -0,0 +1,188 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import com.pseuco.cp23.model.Statistics;
+
+/**
+ * A condition on the statistics which ends a run before the last tick.
+ *
+ * <p>
+ * All engines follow the same rule: they check the condition on the statistics of the
+ * ticks from the initial state up to the tick before the last one in order and stop
+ * at the first tick it is reached at. The output then ends with that tick, as if the
+ * scenario had that many ticks. The last tick is never checked, ending the run there
+ * would not change the output. Conditions are stateless, they may look at the earlier
+ * ticks, so the same condition may be used for any number of runs. Without any query there
+ * are no statistics to look at, so <em>extinct</em> and <em>steady:n</em> are never reached.
+ * </p>
+ */
+public interface StopCondition {
+    /**
+     * The condition which is never reached, the run simulates all ticks.
+     */
+    StopCondition NEVER = (Map<String, List<Statistics>> statistics, int tick) -> false;
+
+    /**
+     * Returns whether the run should end with the given tick.
+     *
+     * @param statistics The statistics for every query, at least up to the given tick.
+     * @param tick       The tick to check.
+     * @return Whether the run should end with this tick.
+     */
+    boolean isReached(Map<String, List<Statistics>> statistics, int tick);
+
+    /**
+     * Parses a condition. The following conditions are supported:
+     *
+     * <ul>
+     * <li><em>extinct</em>: nobody in any query area is infected or infectious,</li>
+     * <li><em>steady:n</em>: the statistics have not changed for <em>n</em> ticks,</li>
+     * <li><em>query.state OP n</em>: the number of persons in the state within the query
+     * area compares to <em>n</em>, with the states <em>susceptible</em>, <em>infected</em>,
+     * <em>infectious</em> and <em>recovered</em> and with <em>OP</em> one of <em>&gt;=</em>,
+     * <em>&lt;=</em>, <em>&gt;</em>, <em>&lt;</em> and <em>==</em>, e.g.,
+     * <em>center.infectious&gt;=50</em>.</li>
+     * </ul>
+     *
+     * @param text The condition.
+     * @return The parsed condition.
+     */
+    static StopCondition parse(String text) {
+        String condition = text.replace(" ", "");
+        if (condition.equals("extinct")) {
+            // without any query, nothing is known about the infections
+            return (Map<String, List<Statistics>> statistics, int tick) -> !statistics.isEmpty()
+                    && statistics.values().stream().allMatch(
+                            (List<Statistics> entries) -> entries.get(tick).getInfected() == 0
+                                    && entries.get(tick).getInfectious() == 0);
+        }
+        if (condition.startsWith("steady:")) {
+            long ticks = parseNumber(condition.substring("steady:".length()), text);
+            return new Steady((int) Math.min(Integer.MAX_VALUE, ticks));
+        }
+        for (String operator : new String[] { ">=", "<=", "==", ">", "<" }) {
+            int position = condition.indexOf(operator);
+            int dot = condition.lastIndexOf('.', Math.max(0, position));
+            if (position < 0 || dot < 0) {
+                continue;
+            }
+            String query = condition.substring(0, dot);
+            ToLongFunction<Statistics> state = getState(condition.substring(dot + 1, position), text);
+            long value = parseNumber(condition.substring(position + operator.length()), text);
+            return (Map<String, List<Statistics>> statistics, int tick) -> {
+                List<Statistics> entries = statistics.get(query);
+                if (entries == null) {
+                    throw new IllegalArgumentException("unknown query in stop condition " + text);
+                }
+                long count = state.applyAsLong(entries.get(tick));
+                switch (operator) {
+                    case ">=":
+                        return count >= value;
+                    case "<=":
+                        return count <= value;
+                    case ">":
+                        return count > value;
+                    case "<":
+                        return count < value;
+                    default:
+                        return count == value;
+                }
+            };
+        }
+        throw new IllegalArgumentException("invalid stop condition " + text);
+    }
+
+    /**
+     * Combines conditions such that the run ends as soon as any of them is reached.
+     *
+     * @param conditions The conditions.
+     * @return The combined condition.
+     */
+    static StopCondition anyOf(List<StopCondition> conditions) {
+        return (Map<String, List<Statistics>> statistics, int tick) -> {
+            for (StopCondition condition : conditions) {
+                if (condition.isReached(statistics, tick)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Checks the condition on the given ticks in order. The ticks are capped, so the last
+     * tick of the scenario is never checked.
+     *
+     * @param condition  The condition.
+     * @param statistics The statistics for every query.
+     * @param from       The first tick to check.
+     * @param to         The tick after the last tick to check.
+     * @param ticks      The number of ticks of the scenario.
+     * @return The first tick the condition is reached at, or <em>-1</em> if there is none.
+     */
+    static int find(StopCondition condition, Map<String, List<Statistics>> statistics, int from, int to, int ticks) {
+        for (int tick = from; tick < Math.min(to, ticks); tick++) {
+            if (condition.isReached(statistics, tick)) {
+                return tick;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseNumber(String number, String text) {
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException error) {
+            throw new IllegalArgumentException("invalid number in stop condition " + text, error);
+        }
+    }
+
+    private static ToLongFunction<Statistics> getState(String name, String text) {
+        switch (name) {
+            case "susceptible":
+                return Statistics::getSusceptible;
+            case "infected":
+                return Statistics::getInfected;
+            case "infectious":
+                return Statistics::getInfectious;
+            case "recovered":
+                return Statistics::getRecovered;
+            default:
+                throw new IllegalArgumentException("unknown state in stop condition " + text);
+        }
+    }
+
+    /**
+     * Reached once the statistics have been the same for the given number of ticks.
+     */
+    class Steady implements StopCondition {
+        private final int ticks;
+
+        /**
+         * Constructs the condition.
+         *
+         * @param ticks The number of ticks the statistics must not change for.
+         */
+        public Steady(int ticks) {
+            this.ticks = ticks;
+        }
+
+        @Override
+        public boolean isReached(Map<String, List<Statistics>> statistics, int tick) {
+            if (tick < this.ticks || statistics.isEmpty()) {
+                return false;
+            }
+            for (List<Statistics> entries : statistics.values()) {
+                for (int previous = tick - this.ticks; previous < tick; previous++) {
+                    if (!entries.get(previous).equals(entries.get(tick))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.model.XY;
+
+/**
+ * A trace stored column by column off-heap, encoded against the previous entry.
+ *
+ * <p>
+ * Every entry holds all persons in the order of their ids. Between two ticks a person
+ * moves by at most one cell along each axis, its direction is the direction it moved in,
+ * and it either stays in its state one tick longer or enters a new state. Each person
+ * therefore takes a single code byte per entry: the move, and whether the direction or the
+ * infection state differ from that prediction. Moves which do not fit and unpredicted
+ * directions and states go into a second column of exceptions, which stays nearly empty,
+ * so a state is only stored when its run ends. Both columns live in direct buffers.
+ * </p>
+ *
+ * <p>
+ * The names are taken once from the initial population. The digests are not stored at all,
+ * they only depend on the seed, the digest of a person in the entry <em>k</em> is the
+ * <em>k</em>-th SHA-256 digest of its seed. The entries are decoded into trace entries
+ * when they are read, e.g., while the output is serialized. Sequential reads decode one
+ * entry after the other, reading an entry again returns it without decoding anything,
+ * reading backwards starts over with the first entry.
+ * </p>
+ *
+ * <p>
+ * Recomputing the digests costs one SHA-256 digest per person and entry, as much hashing
+ * as the simulation itself. To keep the reader from doing all of it on its own thread,
+ * the digests come from windowed digest chains (see <em>DigestChains</em>), which
+ * compute the digests of the next window of entries on all cores at once.
+ * </p>
+ */
+public class TraceStore {
+    /*
+     * Size of the direct buffers making up a column.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private static final int ESCAPE = 0x0f; // the move does not fit, the position is an exception
+    private static final int DIRECTION_CHANGED = 0x10;
+    private static final int STATE_CHANGED = 0x20;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final InfectionState.State[] STATES = InfectionState.State.values();
+    private static final Direction[] MOVES = new Direction[9]; // the direction of each move
+
+    static {
+        for (int move = 0; move < MOVES.length; move++) {
+            MOVES[move] = Direction.fromVector(new XY(move / 3 - 1, move % 3 - 1));
+        }
+    }
+
+    private final List<PersonInfo> initial;
+
+    private final Column codes = new Column();
+    private final Column exceptions = new Column();
+    private long[] exceptionOffsets = new long[16]; // where the exceptions of each entry start
+    private int size = 0;
+
+    // the previous entry as seen by the writer
+    private final Snapshot written;
+
+    // the last entry decoded by the reader, the digests of its persons come from the chains
+    private Snapshot read = null;
+    private int readIndex = -1;
+    private DigestChains chains = null;
+
+    /**
+     * Constructs an empty store for the given population.
+     *
+     * @param initial The initial population, providing the names and the seeds.
+     */
+    public TraceStore(List<PersonInfo> initial) {
+        this.initial = initial;
+        this.written = new Snapshot(initial);
+    }
+
+    /*
+     * The state of every person in some entry, indexed by id.
+     */
+    private static class Snapshot {
+        final int[] x;
+        final int[] y;
+        final byte[] direction;
+        final byte[] state;
+        final int[] since;
+
+        Snapshot(List<PersonInfo> population) {
+            int count = population.size();
+            this.x = new int[count];
+            this.y = new int[count];
+            this.direction = new byte[count];
+            this.state = new byte[count];
+            this.since = new int[count];
+            for (int id = 0; id < count; id++) {
+                PersonInfo info = population.get(id);
+                this.x[id] = info.getPosition().getX();
+                this.y[id] = info.getPosition().getY();
+                this.direction[id] = (byte) info.getDirection().ordinal();
+                this.state[id] = (byte) info.getInfectionState().getState().ordinal();
+                this.since[id] = info.getInfectionState().getInStateSince();
+            }
+        }
+    }
+
+    /*
+     * A growable sequence of bytes made up of direct buffers.
+     */
+    private static class Column {
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private long size = 0;
+
+        void put(int value) {
+            int chunk = (int) (this.size / CHUNK_SIZE);
+            if (chunk == this.chunks.size()) {
+                this.chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            }
+            this.chunks.get(chunk).put((int) (this.size % CHUNK_SIZE), (byte) value);
+            this.size++;
+        }
+
+        void putInt(int value) {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+
+        int get(long position) {
+            return this.chunks.get((int) (position / CHUNK_SIZE)).get((int) (position % CHUNK_SIZE)) & 0xff;
+        }
+
+        int getInt(long position) {
+            return (get(position) << 24) | (get(position + 1) << 16) | (get(position + 2) << 8) | get(position + 3);
+        }
+
+        long size() {
+            return this.size;
+        }
+
+        long capacity() {
+            return (long) this.chunks.size() * CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * Appends an entry holding the given persons, which have to be sorted by their ids.
+     *
+     * @param population The whole population.
+     */
+    public synchronized void add(List<Person> population) {
+        startEntry();
+        for (int id = 0; id < population.size(); id++) {
+            Person person = population.get(id);
+            put(id, person.getX(), person.getY(), person.getDirection().ordinal(), person.getState().ordinal(),
+                    person.getInStateSince());
+        }
+    }
+
+    /**
+     * Appends the given entry, whose population has to be sorted by the ids of the persons.
+     *
+     * @param entry The entry holding the whole population.
+     */
+    public synchronized void add(TraceEntry entry) {
+        startEntry();
+        List<PersonInfo> population = entry.getPopulation();
+        for (int id = 0; id < population.size(); id++) {
+            PersonInfo info = population.get(id);
+            put(id, info.getPosition().getX(), info.getPosition().getY(), info.getDirection().ordinal(),
+                    info.getInfectionState().getState().ordinal(), info.getInfectionState().getInStateSince());
+        }
+    }
+
+    /**
+     * Appends an entry given by the properties of all persons, indexed by their ids.
+     *
+     * @param x            The <em>x</em>-coordinates of the persons.
+     * @param y            The <em>y</em>-coordinates of the persons.
+     * @param directions   The ordinals of the directions of the persons.
+     * @param states       The infection states of the persons.
+     * @param inStateSince How long the persons have been in their states.
+     */
+    public synchronized void add(int[] x, int[] y, byte[] directions, InfectionState.State[] states,
+            int[] inStateSince) {
+        startEntry();
+        for (int id = 0; id < x.length; id++) {
+            put(id, x[id], y[id], directions[id], states[id].ordinal(), inStateSince[id]);
+        }
+    }
+
+    private void startEntry() {
+        if (this.size == this.exceptionOffsets.length) {
+            this.exceptionOffsets = Arrays.copyOf(this.exceptionOffsets, 2 * this.size);
+        }
+        this.exceptionOffsets[this.size++] = this.exceptions.size();
+    }
+
+    /*
+     * Encodes a person against its state in the previous entry.
+     */
+    private void put(int id, int x, int y, int direction, int state, int since) {
+        Snapshot previous = this.written;
+        int deltaX = x - previous.x[id];
+        int deltaY = y - previous.y[id];
+        int code;
+        if (deltaX >= -1 && deltaX <= 1 && deltaY >= -1 && deltaY <= 1) {
+            code = (deltaX + 1) * 3 + deltaY + 1;
+            if (MOVES[code].ordinal() != direction) {
+                code |= DIRECTION_CHANGED;
+            }
+        } else {
+            code = ESCAPE | DIRECTION_CHANGED;
+        }
+        if (state != previous.state[id] || since != previous.since[id] + 1) {
+            code |= STATE_CHANGED;
+        }
+        this.codes.put(code);
+        if ((code & ESCAPE) == ESCAPE) {
+            this.exceptions.putInt(x);
+            this.exceptions.putInt(y);
+        }
+        if ((code & DIRECTION_CHANGED) != 0) {
+            this.exceptions.put(direction);
+        }
+        if ((code & STATE_CHANGED) != 0) {
+            this.exceptions.put(state);
+            this.exceptions.putInt(since);
+        }
+        previous.x[id] = x;
+        previous.y[id] = y;
+        previous.direction[id] = (byte) direction;
+        previous.state[id] = (byte) state;
+        previous.since[id] = since;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of bytes the columns take off-heap.
+     *
+     * @return The allocated size of the columns in bytes.
+     */
+    public synchronized long getAllocatedBytes() {
+        return this.codes.capacity() + this.exceptions.capacity();
+    }
+
+    /**
+     * Decodes the entry with the given index.
+     *
+     * @param index The index of the entry.
+     * @return The entry.
+     */
+    public synchronized TraceEntry get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (index < this.readIndex) {
+            // only sequential reads are cheap, otherwise we start over
+            this.read = null;
+            this.readIndex = -1;
+            this.chains = null;
+        }
+        if (this.read == null) {
+            this.read = new Snapshot(this.initial);
+        }
+        while (this.readIndex < index) {
+            decode(++this.readIndex);
+        }
+        if (index > 0 && (this.chains == null || index > this.chains.getTicks())) {
+            // the chains cover the entries stored so far, the digest of the entry k is the one after the tick k - 1
+            this.chains = new DigestChains(this.initial, this.size - 1, true);
+        }
+        if (index > 0) {
+            this.chains.advance(index - 1);
+        }
+
+        List<PersonInfo> population = new ArrayList<>(this.initial.size());
+        for (int id = 0; id < this.initial.size(); id++) {
+            population.add(new PersonInfo(
+                    this.initial.get(id).getName(),
+                    new XY(this.read.x[id], this.read.y[id]),
+                    index == 0 ? this.initial.get(id).getSeed() : this.chains.get(id, index - 1),
+                    new InfectionState(STATES[this.read.state[id]], this.read.since[id]),
+                    DIRECTIONS[this.read.direction[id]]));
+        }
+        return new TraceEntry(population);
+    }
+
+    /*
+     * Applies the entry with the given index to the snapshot of the reader.
+     */
+    private void decode(int index) {
+        Snapshot snapshot = this.read;
+        int count = this.initial.size();
+        long code = (long) index * count;
+        long exception = this.exceptionOffsets[index];
+        for (int id = 0; id < count; id++) {
+            int value = this.codes.get(code++);
+            int move = value & ESCAPE;
+            if (move == ESCAPE) {
+                snapshot.x[id] = this.exceptions.getInt(exception);
+                snapshot.y[id] = this.exceptions.getInt(exception + 4);
+                exception += 8;
+            } else {
+                snapshot.x[id] += move / 3 - 1;
+                snapshot.y[id] += move % 3 - 1;
+                snapshot.direction[id] = (byte) MOVES[move].ordinal();
+            }
+            if ((value & DIRECTION_CHANGED) != 0) {
+                snapshot.direction[id] = (byte) this.exceptions.get(exception++);
+            }
+            if ((value & STATE_CHANGED) != 0) {
+                snapshot.state[id] = (byte) this.exceptions.get(exception);
+                snapshot.since[id] = this.exceptions.getInt(exception + 1);
+                exception += 5;
+            } else {
+                snapshot.since[id]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the entries as a list, decoding an entry whenever it is accessed.
+     *
+     * @return The trace.
+     */
+    public List<TraceEntry> asList() {
+        return new AbstractList<TraceEntry>() {
+            @Override
+            public TraceEntry get(int index) {
+                return TraceStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return TraceStore.this.size();
+            }
+        };
+    }
+}
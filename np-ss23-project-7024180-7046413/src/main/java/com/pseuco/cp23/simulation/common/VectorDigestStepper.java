@@ -0,0 +1,140 @@
+package com.pseuco.cp23.simulation.common;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Computes as many SHA-256 digests at once as the preferred vectors of the platform hold
+ * integers, every lane of a vector belongs to another digest.
+ *
+ * <p>
+ * The inputs are always 32 bytes long, so each of them is a single padded block and the
+ * last eight words of the message schedule are the same for all of them. Unused lanes of
+ * the last group hash zeros and are dropped.
+ * </p>
+ *
+ * <p>
+ * This class must only be loaded if the module <em>jdk.incubator.vector</em> is present.
+ * </p>
+ */
+class VectorDigestStepper implements DigestStepper {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private static final int[] INITIAL = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    private static final int[] K = {
+        0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+        0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+        0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+        0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+        0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+        0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+        0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+        0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    // the message schedule, the word t of lane l is at t * LANES + l
+    private final int[] schedule = new int[64 * LANES];
+    private final int[] output = new int[8 * LANES];
+
+    VectorDigestStepper() {
+        // the padding of a 32 byte message: a one bit, zeros and the length of 256 bits
+        for (int lane = 0; lane < LANES; lane++) {
+            this.schedule[8 * LANES + lane] = 0x80000000;
+            this.schedule[15 * LANES + lane] = 256;
+        }
+    }
+
+    @Override
+    public void step(byte[][] digests, byte[][] next, int count) {
+        for (int group = 0; group < count; group += LANES) {
+            int lanes = Math.min(LANES, count - group);
+            for (int lane = 0; lane < LANES; lane++) {
+                for (int word = 0; word < 8; word++) {
+                    this.schedule[word * LANES + lane] = lane < lanes ? readWord(digests[group + lane], word) : 0;
+                }
+            }
+            this.compress();
+            for (int lane = 0; lane < lanes; lane++) {
+                byte[] digest = new byte[32];
+                for (int word = 0; word < 8; word++) {
+                    writeWord(digest, word, this.output[word * LANES + lane]);
+                }
+                next[group + lane] = digest;
+            }
+        }
+    }
+
+    private void compress() {
+        for (int t = 16; t < 64; t++) {
+            IntVector w2 = IntVector.fromArray(SPECIES, this.schedule, (t - 2) * LANES);
+            IntVector w15 = IntVector.fromArray(SPECIES, this.schedule, (t - 15) * LANES);
+            IntVector sigma1 = w2.lanewise(VectorOperators.ROR, 17)
+                    .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.ROR, 19))
+                    .lanewise(VectorOperators.XOR, w2.lanewise(VectorOperators.LSHR, 10));
+            IntVector sigma0 = w15.lanewise(VectorOperators.ROR, 7)
+                    .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.ROR, 18))
+                    .lanewise(VectorOperators.XOR, w15.lanewise(VectorOperators.LSHR, 3));
+            sigma1.add(IntVector.fromArray(SPECIES, this.schedule, (t - 7) * LANES))
+                    .add(sigma0)
+                    .add(IntVector.fromArray(SPECIES, this.schedule, (t - 16) * LANES))
+                    .intoArray(this.schedule, t * LANES);
+        }
+
+        IntVector a = IntVector.broadcast(SPECIES, INITIAL[0]);
+        IntVector b = IntVector.broadcast(SPECIES, INITIAL[1]);
+        IntVector c = IntVector.broadcast(SPECIES, INITIAL[2]);
+        IntVector d = IntVector.broadcast(SPECIES, INITIAL[3]);
+        IntVector e = IntVector.broadcast(SPECIES, INITIAL[4]);
+        IntVector f = IntVector.broadcast(SPECIES, INITIAL[5]);
+        IntVector g = IntVector.broadcast(SPECIES, INITIAL[6]);
+        IntVector h = IntVector.broadcast(SPECIES, INITIAL[7]);
+        for (int t = 0; t < 64; t++) {
+            IntVector sum1 = e.lanewise(VectorOperators.ROR, 6)
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 11))
+                    .lanewise(VectorOperators.XOR, e.lanewise(VectorOperators.ROR, 25));
+            // choose: g ^ (e & (f ^ g))
+            IntVector choose = g.lanewise(VectorOperators.XOR, e.and(f.lanewise(VectorOperators.XOR, g)));
+            IntVector temp1 = h.add(sum1).add(choose).add(K[t])
+                    .add(IntVector.fromArray(SPECIES, this.schedule, t * LANES));
+            IntVector sum0 = a.lanewise(VectorOperators.ROR, 2)
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 13))
+                    .lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.ROR, 22));
+            // majority: (a & b) | (c & (a | b))
+            IntVector majority = a.and(b).or(c.and(a.or(b)));
+            h = g;
+            g = f;
+            f = e;
+            e = d.add(temp1);
+            d = c;
+            c = b;
+            b = a;
+            a = temp1.add(sum0).add(majority);
+        }
+
+        a.add(INITIAL[0]).intoArray(this.output, 0);
+        b.add(INITIAL[1]).intoArray(this.output, LANES);
+        c.add(INITIAL[2]).intoArray(this.output, 2 * LANES);
+        d.add(INITIAL[3]).intoArray(this.output, 3 * LANES);
+        e.add(INITIAL[4]).intoArray(this.output, 4 * LANES);
+        f.add(INITIAL[5]).intoArray(this.output, 5 * LANES);
+        g.add(INITIAL[6]).intoArray(this.output, 6 * LANES);
+        h.add(INITIAL[7]).intoArray(this.output, 7 * LANES);
+    }
+
+    private static int readWord(byte[] bytes, int word) {
+        return ((bytes[4 * word] & 0xFF) << 24) | ((bytes[4 * word + 1] & 0xFF) << 16)
+                | ((bytes[4 * word + 2] & 0xFF) << 8) | (bytes[4 * word + 3] & 0xFF);
+    }
+
+    private static void writeWord(byte[] bytes, int word, int value) {
+        bytes[4 * word] = (byte) (value >>> 24);
+        bytes[4 * word + 1] = (byte) (value >>> 16);
+        bytes[4 * word + 2] = (byte) (value >>> 8);
+        bytes[4 * word + 3] = (byte) value;
+    }
+}
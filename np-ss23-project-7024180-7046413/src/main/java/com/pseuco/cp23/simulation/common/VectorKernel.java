@@ -0,0 +1,117 @@
+package com.pseuco.cp23.simulation.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An infection kernel checking the emitters against the susceptible persons with
+ * vector instructions.
+ *
+ * <p>
+ * The positions of the emitters and of the susceptible persons which are breathing are
+ * gathered into primitive arrays, every emitter is then checked against a whole vector
+ * of targets at once. The vectors come from <em>jdk.incubator.vector</em>, which has to
+ * be added with <em>--add-modules jdk.incubator.vector</em>, otherwise the kernel falls
+ * back to a scalar loop over the same arrays. The arrays are kept between ticks and only
+ * grow.
+ * </p>
+ */
+public class VectorKernel implements InfectionKernel {
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private static final ReachMarker MARKER = createMarker();
+
+    private final int infectionRadius;
+
+    private int[] emittersX = new int[16];
+    private int[] emittersY = new int[16];
+    private int numberOfEmitters = 0;
+
+    private int[] targetsX = new int[0];
+    private int[] targetsY = new int[0];
+    private int[] hits = new int[0];
+    private final List<Person> targets = new ArrayList<>();
+
+    /**
+     * Constructs a kernel for the given infection radius.
+     *
+     * @param infectionRadius The infection radius of the scenario.
+     */
+    public VectorKernel(int infectionRadius) {
+        this.infectionRadius = infectionRadius;
+    }
+
+    /*
+     * The vector marker must not even be loaded if the module is missing.
+     */
+    private static ReachMarker createMarker() {
+        if (VECTORIZED) {
+            return new VectorReachMarker();
+        }
+        return new ScalarReachMarker();
+    }
+
+    /**
+     * Returns whether the kernel uses vector instructions.
+     *
+     * @return Whether the vector API is available.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    @Override
+    public void clear() {
+        this.numberOfEmitters = 0;
+    }
+
+    @Override
+    public void offer(Person person) {
+        if (person.isInfectious() && person.isCoughing()) {
+            if (this.numberOfEmitters == this.emittersX.length) {
+                this.emittersX = Arrays.copyOf(this.emittersX, 2 * this.numberOfEmitters);
+                this.emittersY = Arrays.copyOf(this.emittersY, 2 * this.numberOfEmitters);
+            }
+            this.emittersX[this.numberOfEmitters] = person.getX();
+            this.emittersY[this.numberOfEmitters] = person.getY();
+            this.numberOfEmitters++;
+        }
+    }
+
+    @Override
+    public void infect(List<Person> population) {
+        if (this.numberOfEmitters == 0) {
+            return;
+        }
+
+        this.targets.clear();
+        for (Person person : population) {
+            if (person.isSusceptible() && person.isBreathing()) {
+                this.targets.add(person);
+            }
+        }
+        int count = this.targets.size();
+        if (this.targetsX.length < count) {
+            this.targetsX = new int[count];
+            this.targetsY = new int[count];
+            this.hits = new int[count];
+        }
+        for (int index = 0; index < count; index++) {
+            this.targetsX[index] = this.targets.get(index).getX();
+            this.targetsY[index] = this.targets.get(index).getY();
+            this.hits[index] = 0;
+        }
+
+        for (int emitter = 0; emitter < this.numberOfEmitters; emitter++) {
+            MARKER.mark(this.emittersX[emitter], this.emittersY[emitter], this.targetsX, this.targetsY, this.hits,
+                    count, this.infectionRadius);
+        }
+
+        for (int index = 0; index < count; index++) {
+            if (this.hits[index] != 0) {
+                this.targets.get(index).infect();
+            }
+        }
+    }
+}
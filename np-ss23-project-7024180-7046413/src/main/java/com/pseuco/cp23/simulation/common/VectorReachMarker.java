@@ -0,0 +1,37 @@
+package com.pseuco.cp23.simulation.common;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Checks as many targets at once as the preferred vectors of the platform hold, i.e.,
+ * 8 with AVX2 and 16 with AVX-512.
+ *
+ * <p>
+ * This class must only be loaded if the module <em>jdk.incubator.vector</em> is present.
+ * </p>
+ */
+class VectorReachMarker implements ReachMarker {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void mark(int emitterX, int emitterY, int[] targetsX, int[] targetsY, int[] hits, int count,
+            int infectionRadius) {
+        int index = 0;
+        for (int bound = SPECIES.loopBound(count); index < bound; index += SPECIES.length()) {
+            IntVector deltaX = IntVector.fromArray(SPECIES, targetsX, index).sub(emitterX).abs();
+            IntVector deltaY = IntVector.fromArray(SPECIES, targetsY, index).sub(emitterY).abs();
+            VectorMask<Integer> reached = deltaX.add(deltaY).compare(VectorOperators.LE, infectionRadius);
+            if (reached.anyTrue()) {
+                IntVector.fromArray(SPECIES, hits, index).blend(1, reached).intoArray(hits, index);
+            }
+        }
+        for (; index < count; index++) {
+            if (Math.abs(targetsX[index] - emitterX) + Math.abs(targetsY[index] - emitterY) <= infectionRadius) {
+                hits[index] = 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.pseuco.cp23.simulation.freighter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Options;
+import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.StopCondition;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.Rocket;
+import com.pseuco.cp23.simulation.rocket.StatisticsSeries;
+import com.pseuco.cp23.simulation.rocket.Topology;
+import com.pseuco.cp23.validator.InsufficientPaddingException;
+
+/**
+ * A simulation keeping the persons in memory-mapped files instead of on the heap.
+ *
+ * <p>
+ * The grid is divided into the patches of the partition of the scenario. The persons
+ * owned by each patch are stored as records (see <em>Records</em>) in a file per patch.
+ * The simulation proceeds in rounds of as many ticks as the padding allows simulating
+ * without synchronization. In every round, a bounded number of workers takes one patch
+ * after the other, loads the persons inside its padding from the files of the patch and
+ * its neighbours, simulates the round and writes the persons it owns afterwards into a
+ * second file of the patch. The files written in one round are only read in the next
+ * one, so the patches of a round do not depend on each other and only the patches
+ * currently processed by the workers are in memory.
+ * </p>
+ *
+ * <p>
+ * The initial population is written to disk once (see <em>StoredPopulation</em>), the
+ * freighter then drops its reference to the population of the scenario and serves the
+ * names and the initial state from the files. The trace is written to disk as well and
+ * only read when it is accessed. Both are deleted once the freighter is closed or its
+ * population is no longer reachable, the files of the patches are deleted at the end
+ * of the run.
+ * </p>
+ */
+public class Freighter implements Simulation, AutoCloseable {
+    private Scenario scenario; // the population is replaced by the stored one once it is distributed
+    private final int padding;
+    private final int workers;
+    private final int syncTicks;
+    private final StopCondition stop;
+    private int stopTick = -1;
+
+    private final List<Rectangle> grids;
+    private final List<List<Integer>> neighbours;
+    private final List<String> queryKeys;
+
+    private Path directory;
+    private StoredPopulation population;
+    private final long[][] recordCounts; // number of records in each file of each patch
+    private final int[][][] traceCounts; // number of records of each entry in the trace file of each round and patch
+    private final StatisticsSeries series; // every patch adds its values at the end of its round
+
+    private List<TraceEntry> trace = new ArrayList<>();
+
+    /**
+     * Constructs a freighter with the given parameters.
+     *
+     * @param scenario The scenario to simulate.
+     * @param padding  The padding to be used.
+     * @param workers  The number of patches simulated at the same time.
+     */
+    public Freighter(Scenario scenario, int padding, int workers) throws InsufficientPaddingException {
+        this(scenario, padding, workers, new Options());
+    }
+
+    /**
+     * Constructs a freighter with the given options.
+     *
+     * <p>
+     * The freighter ends the run after the first round containing a tick the stop
+     * condition is reached at. It ignores the other options: its holds always use the
+     * emitters whatever the kernel, compute the digests person by person instead of
+     * precomputing or batching them and keep their persons in the order of their ids
+     * instead of a Morton order, and the patches are those of the partition without any
+     * rebalancing.
+     * </p>
+     *
+     * @param scenario The scenario to simulate.
+     * @param padding  The padding to be used.
+     * @param workers  The number of patches simulated at the same time.
+     * @param options  The options of the run.
+     */
+    public Freighter(Scenario scenario, int padding, int workers, Options options)
+            throws InsufficientPaddingException {
+        this.scenario = scenario;
+        this.stop = options.getStop();
+        this.padding = padding;
+        this.workers = Math.max(1, workers);
+        this.syncTicks = calcSyncTicks();
+
+        this.grids = new GridLayout(scenario).getPatches();
+        this.neighbours = Topology.of(scenario).getNeighbours(this.grids, padding);
+        this.queryKeys = new ArrayList<>(scenario.getQueries().keySet());
+
+        this.recordCounts = new long[2][this.grids.size()];
+        this.traceCounts = new int[(scenario.getTicks() + this.syncTicks - 1) / this.syncTicks][this.grids.size()][];
+        this.series = new StatisticsSeries(this.queryKeys, scenario.getTicks());
+    }
+
+    /*
+     * Same as in the rocket, the number of ticks we may simulate between two rounds.
+     */
+    private int calcSyncTicks() throws InsufficientPaddingException {
+        int syncTicks = 0;
+        while (Rocket.getRequiredPadding(this.scenario.getParameters(), syncTicks + 1) <= this.padding) {
+            syncTicks++;
+        }
+        if (syncTicks == 0) {
+            throw new InsufficientPaddingException(this.padding);
+        }
+        return syncTicks;
+    }
+
+    @Override
+    public Output getOutput() {
+        Output output = new Output(this.scenario, this.trace, this.series.getStatistics());
+        return this.stopTick < 0 ? output : output.truncate(this.stopTick);
+    }
+
+    /*
+     * We distribute the population to the files of the patches and simulate one round after the other,
+     * all patches of a round have to be finished before the next round starts.
+     */
+    @Override
+    public void run() {
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers);
+        boolean completed = false;
+        try {
+            this.directory = Files.createTempDirectory("freighter");
+            distribute();
+
+            int round = 0;
+            for (int tick = 0; tick < this.scenario.getTicks(); tick += this.syncTicks) {
+                int endTick = Math.min(tick + this.syncTicks, this.scenario.getTicks());
+                List<Hold> holds = new ArrayList<>();
+                for (int id = 0; id < this.grids.size(); id++) {
+                    holds.add(new Hold(this, id, round, tick, endTick));
+                }
+                for (Future<Void> future : executor.invokeAll(holds)) {
+                    future.get();
+                }
+                // all holds of the round have added their values
+                this.series.complete(endTick);
+                this.stopTick = StopCondition.find(this.stop, this.series.getStatistics(), round == 0 ? 0 : tick + 1,
+                        endTick + 1, this.scenario.getTicks());
+                if (this.stopTick >= 0) {
+                    break;
+                }
+                round++;
+            }
+
+            for (int id = 0; id < this.grids.size(); id++) {
+                Files.deleteIfExists(getRecordPath(id, 0));
+                Files.deleteIfExists(getRecordPath(id, 1));
+            }
+            completed = true;
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        } catch (ExecutionException error) {
+            throw new RuntimeException(error.getCause());
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(error);
+        } finally {
+            executor.shutdown();
+            if (!completed) {
+                close();
+                deleteDirectory(this.directory);
+            }
+        }
+
+        if (this.scenario.getTrace()) {
+            this.trace = new LazyTrace(this, this.population);
+        }
+    }
+
+    /**
+     * Deletes the files of the population and the trace, the output must not be accessed afterwards.
+     */
+    @Override
+    public void close() {
+        if (this.trace instanceof LazyTrace) {
+            ((LazyTrace) this.trace).close();
+        }
+        if (this.population != null) {
+            this.population.close();
+        }
+    }
+
+    /*
+     * Deletes the directory and the files in it as far as possible, failures only leave garbage behind.
+     */
+    static void deleteDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach((Path file) -> file.toFile().delete());
+            Files.deleteIfExists(directory);
+        } catch (IOException error) {
+            // the files stay in the temporary directory of the system
+        }
+    }
+
+    /*
+     * Writes every person into the file of the patch owning it and into the stored population, collects the statistics
+     * of the first tick and replaces the population of the scenario by the stored one, so it is not referenced anymore.
+     */
+    private void distribute() throws IOException {
+        List<Integer> cutsX = this.scenario.getPartition().getX();
+        List<Integer> cutsY = this.scenario.getPartition().getY();
+        List<PersonInfo> population = this.scenario.getPopulation();
+
+        int[] owners = new int[population.size()];
+        for (int id = 0; id < population.size(); id++) {
+            XY position = population.get(id).getPosition();
+            owners[id] = stripe(cutsY, position.getY()) * (cutsX.size() + 1) + stripe(cutsX, position.getX());
+            this.recordCounts[0][owners[id]]++;
+        }
+
+        List<MappedFile> files = new ArrayList<>();
+        for (int patch = 0; patch < this.grids.size(); patch++) {
+            files.add(Records.map(getRecordPath(patch, 0), FileChannel.MapMode.READ_WRITE, this.recordCounts[0][patch]));
+        }
+        long[] written = new long[this.grids.size()];
+        for (int id = 0; id < population.size(); id++) {
+            Records.put(files.get(owners[id]), written[owners[id]]++, id, population.get(id));
+        }
+
+        long[] initial = new long[this.queryKeys.size() * 4];
+        for (PersonInfo person : population) {
+            for (int query = 0; query < this.queryKeys.size(); query++) {
+                if (getQuery(query).getArea().contains(person.getPosition())) {
+                    initial[query * 4 + person.getInfectionState().getState().ordinal()]++;
+                }
+            }
+        }
+        this.series.add(0, 1, initial);
+        this.series.complete(0);
+
+        StoredPopulation.write(this.directory, population);
+        // from now on, the stored population owns the directory with all files
+        this.population = new StoredPopulation(this.directory, population.size());
+        this.scenario = this.scenario.withPopulation(this.population);
+    }
+
+    /*
+     * Returns the index of the stripe containing the coordinate, i.e., the number of cuts up to the coordinate.
+     */
+    private static int stripe(List<Integer> cuts, int coordinate) {
+        int index = Collections.binarySearch(cuts, coordinate);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Returns the series the holds add the SI²R values of their patches to.
+     *
+     * @return The series of the SI²R values.
+     */
+    StatisticsSeries getSeries() {
+        return this.series;
+    }
+
+    Scenario getScenario() {
+        return this.scenario;
+    }
+
+    int getPadding() {
+        return this.padding;
+    }
+
+    int getSyncTicks() {
+        return this.syncTicks;
+    }
+
+    int getNumberOfPatches() {
+        return this.grids.size();
+    }
+
+    Rectangle getGrid(int patch) {
+        return this.grids.get(patch);
+    }
+
+    List<Integer> getNeighbours(int patch) {
+        return this.neighbours.get(patch);
+    }
+
+    int getNumberOfQueries() {
+        return this.queryKeys.size();
+    }
+
+    Query getQuery(int query) {
+        return this.scenario.getQueries().get(this.queryKeys.get(query));
+    }
+
+    /*
+     * The records a patch owns at the start of a round, there are two files per patch which take turns.
+     */
+    Path getRecordPath(int patch, int round) {
+        return this.directory.resolve("patch-" + patch + "-" + (round % 2) + ".bin");
+    }
+
+    long getRecordCount(int patch, int round) {
+        return this.recordCounts[round % 2][patch];
+    }
+
+    void setRecordCount(int patch, int round, long count) {
+        this.recordCounts[round % 2][patch] = count;
+    }
+
+    /*
+     * The trace a patch has written during a round, the records of the persons it owned after each tick
+     * one after the other.
+     */
+    Path getTracePath(int patch, int round) {
+        return this.directory.resolve("trace-" + patch + "-" + round + ".bin");
+    }
+
+    /*
+     * The number of records of each entry in the trace of a patch of a round, null if the patch has not written any.
+     */
+    int[] getTraceCounts(int patch, int round) {
+        return this.traceCounts[round][patch];
+    }
+
+    void setTraceCounts(int patch, int round, int[] counts) {
+        this.traceCounts[round][patch] = counts;
+    }
+}
@@ -0,0 +1,197 @@
+package com.pseuco.cp23.simulation.freighter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.Emitters;
+import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.common.Person.PersonIDComparator;
+import com.pseuco.cp23.simulation.common.QueryCounters;
+import com.pseuco.cp23.simulation.rocket.Utils;
+
+/**
+ * Simulates one round of a patch of a freighter.
+ *
+ * <p>
+ * The persons are only loaded when the hold is called and dropped afterwards, so a
+ * freighter only has the persons of the patches its workers are busy with in memory.
+ * </p>
+ */
+class Hold implements Callable<Void>, Context {
+    private final Freighter freighter;
+    private final int id;
+    private final int round;
+    private final int startTick;
+    private final int endTick;
+
+    private final Rectangle mainGrid;
+    private final Rectangle lookingGrid;
+    private final List<Rectangle> obstacles = new ArrayList<>();
+
+    private List<Person> population = new ArrayList<>();
+    private final Emitters emitters;
+    private final QueryCounters counters;
+
+    Hold(Freighter freighter, int id, int round, int startTick, int endTick) {
+        this.freighter = freighter;
+        this.id = id;
+        this.round = round;
+        this.startTick = startTick;
+        this.endTick = endTick;
+        this.emitters = new Emitters(freighter.getScenario().getParameters().getInfectionRadius());
+
+        this.mainGrid = freighter.getGrid(id);
+        this.counters = new QueryCounters(freighter.getScenario().getQueries(), freighter.getScenario().getGrid(),
+                this.mainGrid);
+        this.lookingGrid = Utils.getLookingGrid(freighter.getScenario(), this.mainGrid, freighter.getPadding());
+        for (Rectangle obstacle : freighter.getScenario().getObstacles()) {
+            if (this.lookingGrid.overlaps(obstacle)) {
+                this.obstacles.add(obstacle);
+            }
+        }
+    }
+
+    /*
+     * The counters only count the persons in our main grid and only those which moved or changed their state,
+     * the queries are in the same order as the ones of the series.
+     */
+    @Override
+    public Void call() throws IOException {
+        load();
+        this.counters.reset(this.population);
+
+        int ticks = this.endTick - this.startTick;
+        int size = this.freighter.getNumberOfQueries() * 4;
+        long[] counts = new long[ticks * size];
+        List<ByteBuffer> trace = new ArrayList<>();
+        int[] traceCounts = new int[ticks];
+        for (int step = this.startTick; step < this.endTick; step++) {
+            this.tick();
+            this.counters.update(this.population);
+            this.counters.copyTo(counts, (step - this.startTick) * size);
+            if (this.freighter.getScenario().getTrace()) {
+                List<Person> owned = getOwnedPopulation();
+                trace.add(toRecords(owned));
+                traceCounts[step - this.startTick] = owned.size();
+            }
+        }
+
+        store();
+        if (!trace.isEmpty()) {
+            this.freighter.setTraceCounts(this.id, this.round, traceCounts);
+            try (FileChannel channel = FileChannel.open(this.freighter.getTracePath(this.id, this.round),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (ByteBuffer buffer : trace) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+        }
+        this.freighter.getSeries().add(this.startTick + 1, ticks, counts);
+        return null;
+    }
+
+    /*
+     * Loads the persons inside of our looking grid from our file and the files of our neighbours,
+     * the persons are sorted by their ids as they have to be ticked in that order.
+     */
+    private void load() throws IOException {
+        List<Integer> sources = new ArrayList<>(this.freighter.getNeighbours(this.id));
+        sources.add(this.id);
+        for (int source : sources) {
+            long count = this.freighter.getRecordCount(source, this.round);
+            if (count == 0) {
+                continue;
+            }
+            MappedFile records = Records.map(this.freighter.getRecordPath(source, this.round),
+                    FileChannel.MapMode.READ_ONLY, count);
+            for (long index = 0; index < count; index++) {
+                if (this.lookingGrid.contains(Records.getPosition(records, index))) {
+                    // the names are neither part of the records nor needed for the simulation
+                    this.population.add(new Person(Records.getId(records, index), this,
+                            this.freighter.getScenario().getParameters(), Records.get(records, index, "")));
+                }
+            }
+        }
+        this.population.sort(new PersonIDComparator());
+    }
+
+    /*
+     * Writes the persons we own after the round into our file for the next round.
+     */
+    private void store() throws IOException {
+        List<Person> owned = getOwnedPopulation();
+        this.freighter.setRecordCount(this.id, this.round + 1, owned.size());
+        if (owned.isEmpty()) {
+            return;
+        }
+        MappedFile records = Records.map(this.freighter.getRecordPath(this.id, this.round + 1),
+                FileChannel.MapMode.READ_WRITE, owned.size());
+        for (int index = 0; index < owned.size(); index++) {
+            Records.put(records, index, owned.get(index).getId(), owned.get(index).getInfo());
+        }
+    }
+
+    /*
+     * The entry of the trace for one tick, the records of the persons, the freighter keeps their number.
+     */
+    private static ByteBuffer toRecords(List<Person> persons) {
+        ByteBuffer buffer = ByteBuffer.allocate(persons.size() * Records.RECORD_SIZE);
+        for (Person person : persons) {
+            Records.put(buffer, person.getId(), person.getInfo());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private List<Person> getOwnedPopulation() {
+        List<Person> owned = new ArrayList<>();
+        for (Person person : this.population) {
+            if (this.mainGrid.contains(person.getX(), person.getY())) {
+                owned.add(person);
+            }
+        }
+        return owned;
+    }
+
+    /*
+     * Ticks all persons in the order of their ids like the slug with the emitters kernel, the digests are computed
+     * person by person, there is neither digest batching, precomputed digests nor a Morton order.
+     */
+    private void tick() {
+        this.emitters.clear();
+        for (Person person : this.population) {
+            person.tick();
+            this.emitters.offer(person);
+        }
+
+        // bust the ghosts of all persons
+        this.population.stream().forEach(Person::bustGhost);
+
+        // now the emitters infect the persons around them, without any there is nothing to do
+        this.emitters.infect(this.population);
+    }
+
+    @Override
+    public Rectangle getGrid() {
+        return this.lookingGrid;
+    }
+
+    @Override
+    public List<Rectangle> getObstacles() {
+        return this.obstacles;
+    }
+
+    @Override
+    public List<Person> getPopulation() {
+        return this.population;
+    }
+}
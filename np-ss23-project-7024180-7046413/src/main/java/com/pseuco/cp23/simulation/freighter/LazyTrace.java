@@ -0,0 +1,116 @@
+package com.pseuco.cp23.simulation.freighter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.TraceEntry;
+
+/**
+ * The trace of a freighter, the entries are read from the files of the patches when
+ * they are accessed.
+ *
+ * <p>
+ * The initial entry and the names of the persons come from the stored population, which
+ * owns the directory of the files, so the files stay as long as the trace is reachable.
+ * The files of a round are mapped when an entry of the round is accessed first and stay
+ * mapped until an entry of another round is accessed, so reading the trace in order maps
+ * every file once. The files only hold records, the index of the first record of an
+ * entry follows from the numbers of records of the earlier entries.
+ * </p>
+ */
+class LazyTrace extends AbstractList<TraceEntry> implements AutoCloseable {
+    private final Freighter freighter;
+    private final StoredPopulation population;
+
+    private final MappedFile[] mappings; // the files of the mapped round, null if a patch has not written any
+    private int mappedRound = -1;
+    private boolean closed = false;
+
+    LazyTrace(Freighter freighter, StoredPopulation population) {
+        this.freighter = freighter;
+        this.population = population;
+        this.mappings = new MappedFile[freighter.getNumberOfPatches()];
+    }
+
+    @Override
+    public int size() {
+        return this.freighter.getScenario().getTicks() + 1;
+    }
+
+    /*
+     * Every patch has written the persons it owned after each tick of a round, we put them into their slots.
+     */
+    @Override
+    public synchronized TraceEntry get(int index) {
+        if (this.closed) {
+            throw new IllegalStateException("the files of the trace have been deleted");
+        }
+        if (index == 0) {
+            return new TraceEntry(this.population);
+        }
+        int round = (index - 1) / this.freighter.getSyncTicks();
+        int entry = (index - 1) % this.freighter.getSyncTicks();
+        try {
+            map(round);
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
+
+        PersonInfo[] slots = new PersonInfo[this.population.size()];
+        for (int patch = 0; patch < this.mappings.length; patch++) {
+            MappedFile records = this.mappings[patch];
+            if (records == null) {
+                continue;
+            }
+            int[] counts = this.freighter.getTraceCounts(patch, round);
+            long first = 0;
+            for (int previous = 0; previous < entry; previous++) {
+                first += counts[previous];
+            }
+            for (long record = first; record < first + counts[entry]; record++) {
+                int id = Records.getId(records, record);
+                slots[id] = Records.get(records, record, this.population.getName(id));
+            }
+        }
+        return new TraceEntry(Arrays.asList(slots));
+    }
+
+    /*
+     * Maps the files of the given round instead of the ones of the mapped round.
+     */
+    private void map(int round) throws IOException {
+        if (round == this.mappedRound) {
+            return;
+        }
+        for (int patch = 0; patch < this.mappings.length; patch++) {
+            this.mappings[patch] = null;
+            Path path = this.freighter.getTracePath(patch, round);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            long records = 0;
+            for (int count : this.freighter.getTraceCounts(patch, round)) {
+                records += count;
+            }
+            this.mappings[patch] = Records.map(path, FileChannel.MapMode.READ_ONLY, records);
+        }
+        this.mappedRound = round;
+    }
+
+    /**
+     * Drops the mapped files, no entry may be accessed afterwards. The files are deleted
+     * with the stored population.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.mappedRound = -1;
+        Arrays.fill(this.mappings, null);
+    }
+}
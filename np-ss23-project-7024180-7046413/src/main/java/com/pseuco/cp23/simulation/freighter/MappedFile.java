@@ -0,0 +1,128 @@
+package com.pseuco.cp23.simulation.freighter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory in chunks, so it may be larger than a single mapping.
+ *
+ * <p>
+ * A mapping holds at most 2 GB, so the file is split into chunks of whole elements of a
+ * fixed size. An element thus never spans two chunks and may be accessed within the
+ * buffer of its chunk. Positions within the file are longs.
+ * </p>
+ */
+final class MappedFile {
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    private final MappedByteBuffer[] chunks;
+    private final long chunkSize;
+
+    private MappedFile(MappedByteBuffer[] chunks, long chunkSize) {
+        this.chunks = chunks;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Maps the given number of bytes of a file into memory.
+     *
+     * @param path        The path of the file, it is created if it does not exist and the mode allows writing.
+     * @param mode        The mode of the mapping.
+     * @param size        The number of bytes to map.
+     * @param elementSize The size of the elements no chunk may split.
+     * @return The mapped file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    static MappedFile map(Path path, FileChannel.MapMode mode, long size, int elementSize) throws IOException {
+        return map(path, mode, size, elementSize, MAX_CHUNK_SIZE);
+    }
+
+    /**
+     * Maps the given number of bytes of a file into memory in chunks of at most the given size.
+     *
+     * @param path         The path of the file, it is created if it does not exist and the mode allows writing.
+     * @param mode         The mode of the mapping.
+     * @param size         The number of bytes to map.
+     * @param elementSize  The size of the elements no chunk may split.
+     * @param maxChunkSize The maximal number of bytes of a chunk.
+     * @return The mapped file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    static MappedFile map(Path path, FileChannel.MapMode mode, long size, int elementSize, long maxChunkSize)
+            throws IOException {
+        long chunkSize = Math.max(1, maxChunkSize / elementSize) * elementSize;
+        OpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new OpenOption[] { StandardOpenOption.READ }
+                : new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE };
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long position = chunk * chunkSize;
+                chunks[chunk] = channel.map(mode, position, Math.min(chunkSize, size - position));
+            }
+            return new MappedFile(chunks, chunkSize);
+        }
+    }
+
+    /**
+     * Returns the buffer of the chunk containing the given position.
+     *
+     * @param position The position within the file.
+     * @return The buffer of the chunk.
+     */
+    ByteBuffer chunk(long position) {
+        return this.chunks[(int) (position / this.chunkSize)];
+    }
+
+    /**
+     * Returns the offset of the given position within the buffer of its chunk.
+     *
+     * @param position The position within the file.
+     * @return The offset within the chunk.
+     */
+    int offset(long position) {
+        return (int) (position % this.chunkSize);
+    }
+
+    /**
+     * Copies bytes starting at the given position, which may span several chunks.
+     *
+     * @param position The position of the first byte.
+     * @param target   The array to fill.
+     */
+    void get(long position, byte[] target) {
+        int copied = 0;
+        while (copied < target.length) {
+            ByteBuffer chunk = chunk(position + copied);
+            int offset = offset(position + copied);
+            int length = Math.min(target.length - copied, chunk.limit() - offset);
+            chunk.get(offset, target, copied, length);
+            copied += length;
+        }
+    }
+
+    /**
+     * Returns the long at the given position, longs must be elements of the file.
+     *
+     * @param position The position of the long.
+     * @return The long.
+     */
+    long getLong(long position) {
+        return chunk(position).getLong(offset(position));
+    }
+
+    /**
+     * Writes a long at the given position, longs must be elements of the file.
+     *
+     * @param position The position of the long.
+     * @param value    The long.
+     */
+    void putLong(long position, long value) {
+        chunk(position).putLong(offset(position), value);
+    }
+}
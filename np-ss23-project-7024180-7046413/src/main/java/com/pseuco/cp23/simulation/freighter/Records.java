@@ -0,0 +1,184 @@
+package com.pseuco.cp23.simulation.freighter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.XY;
+
+/**
+ * Fixed size binary records holding the state of a person.
+ *
+ * <p>
+ * A record consists of the id, the position, the direction, the infection state, the
+ * <em>inStateSince</em>-counter and the digest of the RNG of the person. The name is not
+ * part of a record, it is stored once with the initial population (see
+ * <em>StoredPopulation</em>) and looked up by the id.
+ * </p>
+ */
+final class Records {
+    /**
+     * Size of the digest of the RNG, the RNG is based on SHA-256.
+     */
+    static final int DIGEST_SIZE = 32;
+
+    /**
+     * Size of a record in bytes.
+     */
+    static final int RECORD_SIZE = 4 + 4 + 4 + 1 + 1 + 2 + 4 + DIGEST_SIZE;
+
+    private static final int X_OFFSET = 4;
+    private static final int Y_OFFSET = 8;
+    private static final int DIRECTION_OFFSET = 12;
+    private static final int STATE_OFFSET = 13;
+    private static final int PADDING_OFFSET = 14;
+    private static final int SINCE_OFFSET = 16;
+    private static final int DIGEST_OFFSET = 20;
+
+    private Records() {
+    }
+
+    /**
+     * Appends the record of a person at the current position of the buffer.
+     *
+     * @param buffer The buffer to write to.
+     * @param id     The id of the person.
+     * @param info   The state of the person.
+     */
+    static void put(ByteBuffer buffer, int id, PersonInfo info) {
+        put(buffer, buffer.position(), id, info);
+        buffer.position(buffer.position() + RECORD_SIZE);
+    }
+
+    /**
+     * Writes the record of a person starting at the given offset.
+     *
+     * @param buffer The buffer to write to.
+     * @param offset The offset of the record.
+     * @param id     The id of the person.
+     * @param info   The state of the person.
+     */
+    static void put(ByteBuffer buffer, int offset, int id, PersonInfo info) {
+        if (info.getSeed().length != DIGEST_SIZE) {
+            throw new IllegalArgumentException("rng state of person " + id + " is not " + DIGEST_SIZE + " bytes long");
+        }
+        buffer.putInt(offset, id);
+        buffer.putInt(offset + X_OFFSET, info.getPosition().getX());
+        buffer.putInt(offset + Y_OFFSET, info.getPosition().getY());
+        buffer.put(offset + DIRECTION_OFFSET, (byte) info.getDirection().ordinal());
+        buffer.put(offset + STATE_OFFSET, (byte) info.getInfectionState().getState().ordinal());
+        buffer.putShort(offset + PADDING_OFFSET, (short) 0);
+        buffer.putInt(offset + SINCE_OFFSET, info.getInfectionState().getInStateSince());
+        buffer.put(offset + DIGEST_OFFSET, info.getSeed());
+    }
+
+    /**
+     * Returns the id of the person whose record starts at the given offset.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The offset of the record.
+     * @return The id of the person.
+     */
+    static int getId(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * Returns the position of the person whose record starts at the given offset.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The offset of the record.
+     * @return The position of the person.
+     */
+    static XY getPosition(ByteBuffer buffer, int offset) {
+        return new XY(buffer.getInt(offset + X_OFFSET), buffer.getInt(offset + Y_OFFSET));
+    }
+
+    /**
+     * Returns the state of the person whose record starts at the given offset.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The offset of the record.
+     * @param name   The name of the person.
+     * @return The state of the person.
+     */
+    static PersonInfo get(ByteBuffer buffer, int offset, String name) {
+        byte[] digest = new byte[DIGEST_SIZE];
+        buffer.get(offset + DIGEST_OFFSET, digest);
+        return new PersonInfo(
+                name,
+                getPosition(buffer, offset),
+                digest,
+                new InfectionState(
+                        InfectionState.State.values()[buffer.get(offset + STATE_OFFSET)],
+                        buffer.getInt(offset + SINCE_OFFSET)),
+                Direction.values()[buffer.get(offset + DIRECTION_OFFSET)]);
+    }
+
+    /**
+     * Writes the record of a person to the given index of a file.
+     *
+     * @param file  The records.
+     * @param index The index of the record.
+     * @param id    The id of the person.
+     * @param info  The state of the person.
+     */
+    static void put(MappedFile file, long index, int id, PersonInfo info) {
+        long position = index * RECORD_SIZE;
+        put(file.chunk(position), file.offset(position), id, info);
+    }
+
+    /**
+     * Returns the id of the person whose record is at the given index of a file.
+     *
+     * @param file  The records.
+     * @param index The index of the record.
+     * @return The id of the person.
+     */
+    static int getId(MappedFile file, long index) {
+        long position = index * RECORD_SIZE;
+        return getId(file.chunk(position), file.offset(position));
+    }
+
+    /**
+     * Returns the position of the person whose record is at the given index of a file.
+     *
+     * @param file  The records.
+     * @param index The index of the record.
+     * @return The position of the person.
+     */
+    static XY getPosition(MappedFile file, long index) {
+        long position = index * RECORD_SIZE;
+        return getPosition(file.chunk(position), file.offset(position));
+    }
+
+    /**
+     * Returns the state of the person whose record is at the given index of a file.
+     *
+     * @param file  The records.
+     * @param index The index of the record.
+     * @param name  The name of the person.
+     * @return The state of the person.
+     */
+    static PersonInfo get(MappedFile file, long index, String name) {
+        long position = index * RECORD_SIZE;
+        return get(file.chunk(position), file.offset(position), name);
+    }
+
+    /**
+     * Maps the given number of records of a file into memory, the file may be larger than 2 GB.
+     *
+     * @param path     The path of the file, it is created if it does not exist.
+     * @param mode     The mode of the mapping.
+     * @param capacity The number of records to map.
+     * @return The mapped records.
+     * @throws IOException If the file cannot be mapped.
+     */
+    static MappedFile map(Path path, FileChannel.MapMode mode, long capacity) throws IOException {
+        return MappedFile.map(path, mode, capacity * RECORD_SIZE, RECORD_SIZE);
+    }
+}
@@ -0,0 +1,155 @@
+package com.pseuco.cp23.simulation.freighter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pseuco.cp23.model.PersonInfo;
+
+/**
+ * The initial population of a freighter, stored in files instead of on the heap.
+ *
+ * <p>
+ * The records of the persons (see <em>Records</em>) are stored in the order of their
+ * ids. Their names are stored one after the other in UTF-8, with an index holding the
+ * offset of every name and the end of the last one. Persons and names are only decoded
+ * when they are accessed, so the population may be larger than the heap.
+ * </p>
+ *
+ * <p>
+ * The population owns the directory of the freighter with all its files and deletes it
+ * once it is closed or no longer reachable, the directories of the populations still
+ * open are deleted when the JVM exits.
+ * </p>
+ */
+class StoredPopulation extends AbstractList<PersonInfo> implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /*
+     * The directories of the populations which have not been cleaned yet.
+     */
+    private static final Set<Path> DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> DIRECTORIES.forEach(Freighter::deleteDirectory)));
+    }
+
+    private final int size;
+    private final MappedFile records;
+    private final MappedFile names;
+    private final MappedFile nameOffsets;
+    private final Cleaner.Cleanable cleanable;
+    private volatile boolean closed = false;
+
+    /**
+     * Writes the given population into the files of a stored population in the given directory.
+     *
+     * @param directory  The directory of the files.
+     * @param population The population.
+     * @throws IOException If the files cannot be written.
+     */
+    static void write(Path directory, List<PersonInfo> population) throws IOException {
+        MappedFile records = Records.map(getRecordPath(directory), FileChannel.MapMode.READ_WRITE, population.size());
+        MappedFile nameOffsets = MappedFile.map(getNameOffsetPath(directory), FileChannel.MapMode.READ_WRITE,
+                (population.size() + 1L) * Long.BYTES, Long.BYTES);
+        long offset = 0;
+        try (OutputStream names = new BufferedOutputStream(Files.newOutputStream(getNamePath(directory)))) {
+            for (int id = 0; id < population.size(); id++) {
+                PersonInfo person = population.get(id);
+                Records.put(records, id, id, person);
+                byte[] name = person.getName().getBytes(StandardCharsets.UTF_8);
+                nameOffsets.putLong((long) id * Long.BYTES, offset);
+                names.write(name);
+                offset += name.length;
+            }
+        }
+        nameOffsets.putLong((long) population.size() * Long.BYTES, offset);
+    }
+
+    /**
+     * Maps the files written into the given directory, the population owns the directory from now on.
+     *
+     * @param directory The directory of the files.
+     * @param size      The number of persons.
+     * @throws IOException If the files cannot be mapped.
+     */
+    StoredPopulation(Path directory, int size) throws IOException {
+        DIRECTORIES.add(directory);
+        // the action must not refer to the population, otherwise it would always be reachable
+        this.cleanable = CLEANER.register(this, () -> {
+            DIRECTORIES.remove(directory);
+            Freighter.deleteDirectory(directory);
+        });
+
+        this.size = size;
+        this.records = Records.map(getRecordPath(directory), FileChannel.MapMode.READ_ONLY, size);
+        this.nameOffsets = MappedFile.map(getNameOffsetPath(directory), FileChannel.MapMode.READ_ONLY,
+                (size + 1L) * Long.BYTES, Long.BYTES);
+        this.names = MappedFile.map(getNamePath(directory), FileChannel.MapMode.READ_ONLY,
+                this.nameOffsets.getLong((long) size * Long.BYTES), 1);
+    }
+
+    private static Path getRecordPath(Path directory) {
+        return directory.resolve("population.bin");
+    }
+
+    private static Path getNamePath(Path directory) {
+        return directory.resolve("names.bin");
+    }
+
+    private static Path getNameOffsetPath(Path directory) {
+        return directory.resolve("names.idx");
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public PersonInfo get(int id) {
+        return Records.get(this.records, checkIndex(id), getName(id));
+    }
+
+    /**
+     * Returns the name of the person with the given id.
+     *
+     * @param id The id of the person.
+     * @return The name of the person.
+     */
+    String getName(int id) {
+        long position = (long) checkIndex(id) * Long.BYTES;
+        long start = this.nameOffsets.getLong(position);
+        byte[] name = new byte[(int) (this.nameOffsets.getLong(position + Long.BYTES) - start)];
+        this.names.get(start, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private int checkIndex(int id) {
+        if (this.closed) {
+            throw new IllegalStateException("the files of the population have been deleted");
+        }
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException(id);
+        }
+        return id;
+    }
+
+    /**
+     * Deletes the files of the population and of the freighter, no person may be accessed afterwards.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.cleanable.clean();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * An out-of-core simulation keeping the population in memory-mapped files, for
+ * populations which do not fit into the heap.
+ */
+package com.pseuco.cp23.simulation.freighter;
@@ -0,0 +1,94 @@
+package com.pseuco.cp23.simulation.rocket;
+
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A layout given by a grid of <em>x</em>- and <em>y</em>-cuts with patches enumerated
+ * left-to-right and top-to-bottom, e.g., the partition of a scenario.
+ */
+public class GridLayout implements Layout {
+    private final XY gridSize;
+
+    private final int[] cutsX;
+    private final int[] cutsY;
+
+    private final List<Rectangle> patches = new ArrayList<>();
+
+    /**
+     * Constructs the layout given by the partition of the scenario.
+     *
+     * @param scenario The scenario.
+     */
+    public GridLayout(Scenario scenario) {
+        this(
+            scenario.getGridSize(),
+            scenario.getPartition().getX().stream().mapToInt(Integer::intValue).toArray(),
+            scenario.getPartition().getY().stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    private GridLayout(XY gridSize, int[] cutsX, int[] cutsY) {
+        this.gridSize = gridSize;
+        this.cutsX = cutsX;
+        this.cutsY = cutsY;
+
+        int lastY = 0;
+        for (int row = 0; row <= cutsY.length; row++) {
+            int currentY = row < cutsY.length ? cutsY[row] : gridSize.getY();
+            int lastX = 0;
+            for (int column = 0; column <= cutsX.length; column++) {
+                int currentX = column < cutsX.length ? cutsX[column] : gridSize.getX();
+                XY topLeft = new XY(lastX, lastY);
+                this.patches.add(new Rectangle(topLeft, new XY(currentX, currentY).sub(topLeft)));
+                lastX = currentX;
+            }
+            lastY = currentY;
+        }
+    }
+
+    @Override
+    public List<Rectangle> getPatches() {
+        return this.patches;
+    }
+
+    /*
+     * Every cut moves according to the summed costs of the whole columns (or rows) it
+     * separates, so the layout stays a grid.
+     */
+    @Override
+    public Layout rebalance(double[] costs) {
+        int columns = this.cutsX.length + 1;
+        int rows = this.cutsY.length + 1;
+        double[] columnCosts = new double[columns];
+        double[] rowCosts = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                columnCosts[column] += costs[row * columns + column];
+                rowCosts[row] += costs[row * columns + column];
+            }
+        }
+        return new GridLayout(
+            this.gridSize,
+            moveCuts(this.cutsX, columnCosts, this.gridSize.getX()),
+            moveCuts(this.cutsY, rowCosts, this.gridSize.getY())
+        );
+    }
+
+    private static int[] moveCuts(int[] cuts, double[] stripeCosts, int size) {
+        int[] result = new int[cuts.length];
+        for (int index = 0; index < cuts.length; index++) {
+            int previous = index == 0 ? 0 : cuts[index - 1];
+            int next = index == cuts.length - 1 ? size : cuts[index + 1];
+            int shift = Utils.shiftBoundary(
+                    cuts[index] - previous, next - cuts[index], stripeCosts[index], stripeCosts[index + 1]);
+            int lower = index == 0 ? 1 : result[index - 1] + 1;
+            result[index] = Math.max(lower, Math.min(next - 1, cuts[index] + shift));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,215 @@
+package com.pseuco.cp23.simulation.rocket;
+
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A layout obtained by recursively bisecting the grid (a k-d tree).
+ *
+ * <p>
+ * Every area is cut along its longer side such that both halves receive a share of the
+ * persons proportional to the number of patches they are divided into. Unlike a grid
+ * layout, a cut only affects the area it bisects, so a dense hotspot does not fragment
+ * sparse areas elsewhere. Patches are enumerated in depth-first order of the tree.
+ * </p>
+ */
+public class KdLayout implements Layout {
+    /*
+     * A node of the tree, leaves are patches. The cut is an absolute coordinate.
+     */
+    private static class Node {
+        private final Rectangle area;
+        private final boolean alongX;
+        private final int cut;
+        private final Node lower;
+        private final Node upper;
+        private final int firstLeaf;
+        private final int leaves;
+
+        private Node(Rectangle area, int firstLeaf) {
+            this(area, false, 0, null, null, firstLeaf, 1);
+        }
+
+        private Node(Rectangle area, boolean alongX, int cut, Node lower, Node upper, int firstLeaf, int leaves) {
+            this.area = area;
+            this.alongX = alongX;
+            this.cut = cut;
+            this.lower = lower;
+            this.upper = upper;
+            this.firstLeaf = firstLeaf;
+            this.leaves = leaves;
+        }
+
+        private boolean isLeaf() {
+            return this.lower == null;
+        }
+    }
+
+    private final Node root;
+    private final List<Rectangle> patches = new ArrayList<>();
+
+    /**
+     * Constructs a layout with the given number of patches based on the initial
+     * population of the scenario.
+     *
+     * <p>
+     * The number of patches may be lower if the grid is too small.
+     * </p>
+     *
+     * @param scenario        The scenario.
+     * @param numberOfPatches The targeted number of patches.
+     */
+    public KdLayout(Scenario scenario, int numberOfPatches) {
+        List<PersonInfo> population = scenario.getPopulation();
+        int[] xs = new int[population.size()];
+        int[] ys = new int[population.size()];
+        for (int index = 0; index < population.size(); index++) {
+            xs[index] = population.get(index).getPosition().getX();
+            ys[index] = population.get(index).getPosition().getY();
+        }
+        this.root = bisect(scenario.getGrid(), xs, ys, Math.max(1, numberOfPatches), 0);
+        collectPatches(this.root);
+    }
+
+    private KdLayout(Node root) {
+        this.root = root;
+        collectPatches(this.root);
+    }
+
+    private void collectPatches(Node node) {
+        if (node.isLeaf()) {
+            this.patches.add(node.area);
+        } else {
+            collectPatches(node.lower);
+            collectPatches(node.upper);
+        }
+    }
+
+    /*
+     * Recursively bisects the area, xs and ys are the coordinates of the persons inside.
+     */
+    private static Node bisect(Rectangle area, int[] xs, int[] ys, int leaves, int firstLeaf) {
+        XY size = area.getSize();
+        boolean alongX = size.getX() >= size.getY();
+        int length = alongX ? size.getX() : size.getY();
+        if (leaves <= 1 || length < 2) {
+            return new Node(area, firstLeaf);
+        }
+
+        int lowerLeaves = leaves / 2;
+        int from = alongX ? area.getTopLeft().getX() : area.getTopLeft().getY();
+        int[] coordinates = (alongX ? xs : ys).clone();
+        Arrays.sort(coordinates);
+
+        int cut;
+        if (coordinates.length == 0) {
+            cut = from + (int) ((long) length * lowerLeaves / leaves);
+        } else {
+            cut = coordinates[(int) ((long) coordinates.length * lowerLeaves / leaves)];
+        }
+        cut = Math.max(from + 1, Math.min(from + length - 1, cut));
+
+        Rectangle lower = lowerPart(area, alongX, cut);
+        Rectangle upper = upperPart(area, alongX, cut);
+
+        int lowerCount = 0;
+        for (int index = 0; index < xs.length; index++) {
+            if ((alongX ? xs[index] : ys[index]) < cut) {
+                lowerCount++;
+            }
+        }
+        int[] lowerXs = new int[lowerCount];
+        int[] lowerYs = new int[lowerCount];
+        int[] upperXs = new int[xs.length - lowerCount];
+        int[] upperYs = new int[xs.length - lowerCount];
+        int lowerIndex = 0;
+        int upperIndex = 0;
+        for (int index = 0; index < xs.length; index++) {
+            if ((alongX ? xs[index] : ys[index]) < cut) {
+                lowerXs[lowerIndex] = xs[index];
+                lowerYs[lowerIndex++] = ys[index];
+            } else {
+                upperXs[upperIndex] = xs[index];
+                upperYs[upperIndex++] = ys[index];
+            }
+        }
+
+        Node lowerNode = bisect(lower, lowerXs, lowerYs, lowerLeaves, firstLeaf);
+        Node upperNode = bisect(upper, upperXs, upperYs, leaves - lowerLeaves, firstLeaf + lowerNode.leaves);
+        return new Node(area, alongX, cut, lowerNode, upperNode, firstLeaf, lowerNode.leaves + upperNode.leaves);
+    }
+
+    private static Rectangle lowerPart(Rectangle area, boolean alongX, int cut) {
+        XY size = area.getSize();
+        if (alongX) {
+            return new Rectangle(area.getTopLeft(), new XY(cut - area.getTopLeft().getX(), size.getY()));
+        }
+        return new Rectangle(area.getTopLeft(), new XY(size.getX(), cut - area.getTopLeft().getY()));
+    }
+
+    private static Rectangle upperPart(Rectangle area, boolean alongX, int cut) {
+        XY bottomRight = area.getBottomRight();
+        if (alongX) {
+            XY topLeft = new XY(cut, area.getTopLeft().getY());
+            return new Rectangle(topLeft, bottomRight.sub(topLeft));
+        }
+        XY topLeft = new XY(area.getTopLeft().getX(), cut);
+        return new Rectangle(topLeft, bottomRight.sub(topLeft));
+    }
+
+    /*
+     * Returns the minimal size the area of the node needs along the given axis to keep all cuts inside.
+     */
+    private static int minimalSize(Node node, boolean alongX) {
+        if (node.isLeaf()) {
+            return 1;
+        }
+        if (node.alongX == alongX) {
+            return minimalSize(node.lower, alongX) + minimalSize(node.upper, alongX);
+        }
+        return Math.max(minimalSize(node.lower, alongX), minimalSize(node.upper, alongX));
+    }
+
+    private static double subtreeCost(Node node, double[] costs) {
+        double result = 0;
+        for (int leaf = node.firstLeaf; leaf < node.firstLeaf + node.leaves; leaf++) {
+            result += costs[leaf];
+        }
+        return result;
+    }
+
+    /*
+     * Moves every cut according to the costs of the two subtrees it separates and fits the
+     * subtrees into their new areas.
+     */
+    private static Node rebalance(Node node, Rectangle area, double[] costs) {
+        if (node.isLeaf()) {
+            return new Node(area, node.firstLeaf);
+        }
+        int from = node.alongX ? area.getTopLeft().getX() : area.getTopLeft().getY();
+        int to = node.alongX ? area.getBottomRight().getX() : area.getBottomRight().getY();
+        int cut = Math.max(from + 1, Math.min(to - 1, node.cut));
+        cut += Utils.shiftBoundary(cut - from, to - cut, subtreeCost(node.lower, costs), subtreeCost(node.upper, costs));
+        cut = Math.max(from + minimalSize(node.lower, node.alongX),
+                Math.min(to - minimalSize(node.upper, node.alongX), cut));
+        Node lower = rebalance(node.lower, lowerPart(area, node.alongX, cut), costs);
+        Node upper = rebalance(node.upper, upperPart(area, node.alongX, cut), costs);
+        return new Node(area, node.alongX, cut, lower, upper, node.firstLeaf, node.leaves);
+    }
+
+    @Override
+    public List<Rectangle> getPatches() {
+        return this.patches;
+    }
+
+    @Override
+    public Layout rebalance(double[] costs) {
+        return new KdLayout(rebalance(this.root, this.root.area, costs));
+    }
+}
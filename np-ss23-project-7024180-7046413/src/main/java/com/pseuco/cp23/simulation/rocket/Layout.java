@@ -0,0 +1,40 @@
+package com.pseuco.cp23.simulation.rocket;
+
+import com.pseuco.cp23.model.Rectangle;
+
+import java.util.List;
+
+/**
+ * Describes how the grid is divided into patches.
+ *
+ * <p>
+ * The patches must not overlap and have to cover the whole grid. The id of a patch is
+ * its index in the list returned by <em>getPatches</em>. Which patches are neighbours
+ * is derived from the areas, so a layout may form an arbitrary neighbour graph.
+ * </p>
+ *
+ * <p>
+ * Layouts are immutable, rebalancing a layout returns a new layout.
+ * </p>
+ */
+public interface Layout {
+    /**
+     * Returns the areas owned by the patches.
+     *
+     * @return The areas owned by the patches, indexed by patch id.
+     */
+    List<Rectangle> getPatches();
+
+    /**
+     * Moves the boundaries between neighbouring patches from the more expensive towards
+     * the cheaper patch, i.e., hands strips over to the cheaper patch.
+     *
+     * <p>
+     * The number of patches and their ids stay the same.
+     * </p>
+     *
+     * @param costs The measured cost of each patch, indexed by patch id.
+     * @return The rebalanced layout.
+     */
+    Layout rebalance(double[] costs);
+}
@@ -0,0 +1,321 @@
+package com.pseuco.cp23.simulation.rocket;
+
+import com.pseuco.cp23.model.Partition;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plans a partition of the grid based on the initial population and the obstacles.
+ *
+ * <p>
+ * The cost of a patch per tick is estimated from the number <em>n</em> of persons it has
+ * to simulate (including its padding) and the number <em>o</em> of obstacles it has to
+ * check as <em>n * (HASH_COST + o) + n²</em>, where the quadratic term accounts for the
+ * collision and infection checks between all pairs. The number of obstacles is estimated
+ * from the area they cover within the patch, divided by the average area of an obstacle,
+ * so both the persons and the obstacles of a patch are looked up in summed-area tables.
+ * The planner picks the shape of the partition and the cuts such that the most expensive
+ * patch is as cheap as possible.
+ * </p>
+ */
+public class PartitionPlanner {
+    /*
+     * Hashing the RNG of a person costs roughly as much as this many pair checks.
+     */
+    private static final double HASH_COST = 64;
+
+    /*
+     * Upper bound for the number of cells the density map may have.
+     */
+    private static final int MAX_CELLS = 1 << 20;
+
+    private final Scenario scenario;
+    private final int padding;
+
+    private final int cellSize;
+    private final int cellsX;
+    private final int cellsY;
+    private final int[] prefixSums;
+    private final double[] obstacleSums; // summed-area table of the area covered by obstacles per cell
+    private final double obstacleArea; // the average area of an obstacle
+
+    /**
+     * Constructs a planner for the given scenario.
+     *
+     * @param scenario The scenario to plan a partition for.
+     * @param padding  The padding the patches will use.
+     */
+    public PartitionPlanner(Scenario scenario, int padding) {
+        this.scenario = scenario;
+        this.padding = padding;
+
+        int width = scenario.getGridSize().getX();
+        int height = scenario.getGridSize().getY();
+        this.cellSize = Math.max(1, (int) Math.ceil(Math.sqrt((double) width * height / MAX_CELLS)));
+        this.cellsX = (width + this.cellSize - 1) / this.cellSize;
+        this.cellsY = (height + this.cellSize - 1) / this.cellSize;
+
+        // summed-area table of the number of persons per cell
+        this.prefixSums = new int[(this.cellsX + 1) * (this.cellsY + 1)];
+        for (PersonInfo person : scenario.getPopulation()) {
+            int cellX = person.getPosition().getX() / this.cellSize;
+            int cellY = person.getPosition().getY() / this.cellSize;
+            this.prefixSums[(cellY + 1) * (this.cellsX + 1) + cellX + 1]++;
+        }
+        for (int y = 1; y <= this.cellsY; y++) {
+            for (int x = 1; x <= this.cellsX; x++) {
+                this.prefixSums[y * (this.cellsX + 1) + x] += this.prefixSums[(y - 1) * (this.cellsX + 1) + x]
+                        + this.prefixSums[y * (this.cellsX + 1) + x - 1]
+                        - this.prefixSums[(y - 1) * (this.cellsX + 1) + x - 1];
+            }
+        }
+
+        // the same for the area covered by the obstacles, overlapping obstacles count twice
+        this.obstacleSums = new double[(this.cellsX + 1) * (this.cellsY + 1)];
+        double totalArea = 0;
+        for (Rectangle obstacle : scenario.getObstacles()) {
+            if (!obstacle.overlaps(scenario.getGrid())) {
+                continue;
+            }
+            Rectangle covered = obstacle.intersect(scenario.getGrid());
+            totalArea += (double) covered.getSize().getX() * covered.getSize().getY();
+            int fromX = covered.getTopLeft().getX();
+            int fromY = covered.getTopLeft().getY();
+            int toX = fromX + covered.getSize().getX();
+            int toY = fromY + covered.getSize().getY();
+            for (int cellY = fromY / this.cellSize; cellY * this.cellSize < toY; cellY++) {
+                int coveredY = Math.min(toY, (cellY + 1) * this.cellSize) - Math.max(fromY, cellY * this.cellSize);
+                for (int cellX = fromX / this.cellSize; cellX * this.cellSize < toX; cellX++) {
+                    int coveredX = Math.min(toX, (cellX + 1) * this.cellSize) - Math.max(fromX, cellX * this.cellSize);
+                    this.obstacleSums[(cellY + 1) * (this.cellsX + 1) + cellX + 1] += (double) coveredX * coveredY;
+                }
+            }
+        }
+        this.obstacleArea = scenario.getObstacles().isEmpty() ? 1 : Math.max(1, totalArea / scenario.getObstacles().size());
+        for (int y = 1; y <= this.cellsY; y++) {
+            for (int x = 1; x <= this.cellsX; x++) {
+                this.obstacleSums[y * (this.cellsX + 1) + x] += this.obstacleSums[(y - 1) * (this.cellsX + 1) + x]
+                        + this.obstacleSums[y * (this.cellsX + 1) + x - 1]
+                        - this.obstacleSums[(y - 1) * (this.cellsX + 1) + x - 1];
+            }
+        }
+    }
+
+    /**
+     * Plans a partition with the given number of patches.
+     *
+     * <p>
+     * The partition has exactly the given number of patches whenever it factors into a
+     * grid of at least two rows and two columns which fits the grid. Otherwise, e.g., for
+     * a prime number such as <em>7</em>, every number of stripes along the <em>x</em>-axis
+     * is tried with as many stripes along the <em>y</em>-axis as the number of patches
+     * allows, so <em>2 × 3</em> patches may beat <em>1 × 7</em> stripes. The number of
+     * patches may also be lower if the grid is too small.
+     * </p>
+     *
+     * @param numberOfPatches The targeted number of patches.
+     * @return The planned partition.
+     */
+    public Partition plan(int numberOfPatches) {
+        int[] bestX = new int[0];
+        int[] bestY = new int[0];
+        double bestCost = Double.POSITIVE_INFINITY;
+
+        boolean exact = false;
+        for (int patchesX = 2; patchesX < numberOfPatches; patchesX++) {
+            int patchesY = numberOfPatches / patchesX;
+            exact |= numberOfPatches % patchesX == 0 && patchesY >= 2
+                    && patchesX <= this.cellsX && patchesY <= this.cellsY;
+        }
+
+        for (int patchesX = 1; patchesX <= numberOfPatches; patchesX++) {
+            int patchesY = numberOfPatches / patchesX;
+            if (patchesX > this.cellsX || patchesY > this.cellsY) {
+                continue;
+            }
+            if (exact && patchesX * patchesY != numberOfPatches) {
+                continue;
+            }
+            int[] cutsX = balanceCuts(patchesX, true);
+            int[] cutsY = balanceCuts(patchesY, false);
+            double cost = refineCuts(cutsX, cutsY);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestX = cutsX;
+                bestY = cutsY;
+            }
+        }
+
+        return new Partition(toCoordinates(bestX), toCoordinates(bestY));
+    }
+
+    /**
+     * Returns the estimated cost per tick of the most expensive patch of the given partition.
+     *
+     * @param partition The partition to estimate the cost of.
+     * @return The estimated cost of the most expensive patch.
+     */
+    public double estimateMaximalCost(Partition partition) {
+        return maximalCost(toCells(partition.getX()), toCells(partition.getY()));
+    }
+
+    /*
+     * Places the cuts along one axis such that every stripe gets the same share of the
+     * persons. Empty space weighs a little, so an empty grid is cut evenly.
+     */
+    private int[] balanceCuts(int stripes, boolean alongX) {
+        int cells = alongX ? this.cellsX : this.cellsY;
+        int otherCells = alongX ? this.cellsY : this.cellsX;
+        double[] weights = new double[cells];
+        double total = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int persons = alongX
+                    ? countPersons(cell, 0, cell + 1, otherCells)
+                    : countPersons(0, cell, otherCells, cell + 1);
+            weights[cell] = persons + 1e-3 * otherCells;
+            total += weights[cell];
+        }
+
+        int[] cuts = new int[stripes - 1];
+        double accumulated = 0;
+        int cut = 0;
+        for (int cell = 0; cell < cells && cut < cuts.length; cell++) {
+            accumulated += weights[cell];
+            if (accumulated >= total * (cut + 1) / stripes) {
+                cuts[cut++] = cell + 1;
+            }
+        }
+        // make sure the cuts are strictly ascending and inside of the grid
+        for (int index = 0; index < cuts.length; index++) {
+            int lower = index == 0 ? 1 : cuts[index - 1] + 1;
+            int upper = cells - (cuts.length - index);
+            cuts[index] = Math.max(lower, Math.min(upper, cuts[index]));
+        }
+        return cuts;
+    }
+
+    /*
+     * Greedily moves the cuts bounding the most expensive patch as long as this lowers
+     * the cost of the most expensive patch. Returns the final maximal cost.
+     */
+    private double refineCuts(int[] cutsX, int[] cutsY) {
+        double current = maximalCost(cutsX, cutsY);
+        int iterations = 50 * (cutsX.length + cutsY.length + 1);
+        while (iterations-- > 0) {
+            int[] patch = mostExpensivePatch(cutsX, cutsY);
+            double bestCost = current;
+            int[] bestCuts = null;
+            int bestIndex = 0;
+            int bestValue = 0;
+            for (int[] cuts : new int[][] { cutsX, cutsY }) {
+                int stripe = cuts == cutsX ? patch[0] : patch[1];
+                int cells = cuts == cutsX ? this.cellsX : this.cellsY;
+                // the cut before the stripe moves forward, the cut after it backward
+                for (int index : new int[] { stripe - 1, stripe }) {
+                    if (index < 0 || index >= cuts.length) {
+                        continue;
+                    }
+                    int original = cuts[index];
+                    int lower = index == 0 ? 1 : cuts[index - 1] + 1;
+                    int upper = index == cuts.length - 1 ? cells - 1 : cuts[index + 1] - 1;
+                    int width = Math.max(1, (upper - lower) / 4);
+                    for (int delta : new int[] { 1, width }) {
+                        int value = index == stripe - 1 ? original + delta : original - delta;
+                        if (value < lower || value > upper) {
+                            continue;
+                        }
+                        cuts[index] = value;
+                        double cost = maximalCost(cutsX, cutsY);
+                        cuts[index] = original;
+                        if (cost < bestCost) {
+                            bestCost = cost;
+                            bestCuts = cuts;
+                            bestIndex = index;
+                            bestValue = value;
+                        }
+                    }
+                }
+            }
+            if (bestCuts == null) {
+                break;
+            }
+            bestCuts[bestIndex] = bestValue;
+            current = bestCost;
+        }
+        return current;
+    }
+
+    private double maximalCost(int[] cutsX, int[] cutsY) {
+        int[] patch = mostExpensivePatch(cutsX, cutsY);
+        return estimateCost(cutsX, cutsY, patch[0], patch[1]);
+    }
+
+    private int[] mostExpensivePatch(int[] cutsX, int[] cutsY) {
+        int[] result = new int[] { 0, 0 };
+        double maximum = -1;
+        for (int stripeY = 0; stripeY <= cutsY.length; stripeY++) {
+            for (int stripeX = 0; stripeX <= cutsX.length; stripeX++) {
+                double cost = estimateCost(cutsX, cutsY, stripeX, stripeY);
+                if (cost > maximum) {
+                    maximum = cost;
+                    result[0] = stripeX;
+                    result[1] = stripeY;
+                }
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Estimates the cost of the given patch per tick, see the class documentation.
+     */
+    private double estimateCost(int[] cutsX, int[] cutsY, int stripeX, int stripeY) {
+        int fromX = stripeX == 0 ? 0 : cutsX[stripeX - 1];
+        int toX = stripeX == cutsX.length ? this.cellsX : cutsX[stripeX];
+        int fromY = stripeY == 0 ? 0 : cutsY[stripeY - 1];
+        int toY = stripeY == cutsY.length ? this.cellsY : cutsY[stripeY];
+
+        int paddingCells = (this.padding + this.cellSize - 1) / this.cellSize;
+        fromX = Math.max(fromX - paddingCells, 0);
+        fromY = Math.max(fromY - paddingCells, 0);
+        toX = Math.min(toX + paddingCells, this.cellsX);
+        toY = Math.min(toY + paddingCells, this.cellsY);
+        double persons = countPersons(fromX, fromY, toX, toY);
+
+        int stride = this.cellsX + 1;
+        double covered = this.obstacleSums[toY * stride + toX] - this.obstacleSums[fromY * stride + toX]
+                - this.obstacleSums[toY * stride + fromX] + this.obstacleSums[fromY * stride + fromX];
+        double obstacles = covered / this.obstacleArea;
+
+        return persons * (HASH_COST + obstacles) + persons * persons;
+    }
+
+    /*
+     * Counts the persons within the given range of cells (end exclusive).
+     */
+    private int countPersons(int fromX, int fromY, int toX, int toY) {
+        int stride = this.cellsX + 1;
+        return this.prefixSums[toY * stride + toX] - this.prefixSums[fromY * stride + toX]
+                - this.prefixSums[toY * stride + fromX] + this.prefixSums[fromY * stride + fromX];
+    }
+
+    private int[] toCells(List<Integer> cuts) {
+        int[] result = new int[cuts.size()];
+        for (int index = 0; index < result.length; index++) {
+            result[index] = cuts.get(index) / this.cellSize;
+        }
+        return result;
+    }
+
+    private List<Integer> toCoordinates(int[] cuts) {
+        List<Integer> result = new ArrayList<>();
+        for (int cut : cuts) {
+            result.add(cut * this.cellSize);
+        }
+        return result;
+    }
+}
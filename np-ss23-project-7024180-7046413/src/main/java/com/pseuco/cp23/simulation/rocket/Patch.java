@@ -1,44 +1,54 @@
 package com.pseuco.cp23.simulation.rocket;
 
 import com.pseuco.cp23.model.Output;
-import com.pseuco.cp23.model.Query;
 import com.pseuco.cp23.model.Rectangle;
 import com.pseuco.cp23.model.Scenario;
-import com.pseuco.cp23.model.Statistics;
 import com.pseuco.cp23.model.TraceEntry;
-import com.pseuco.cp23.model.XY;
 import com.pseuco.cp23.simulation.common.Simulation;
 import com.pseuco.cp23.validator.Validator;
 
 import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.DigestBatch;
+import com.pseuco.cp23.simulation.common.DigestChains;
+import com.pseuco.cp23.simulation.common.InfectionKernel;
 import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.common.Person.MortonComparator;
 import com.pseuco.cp23.simulation.common.Person.PersonIDComparator;
+import com.pseuco.cp23.simulation.common.QueryCounters;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.lang.Thread;
-import java.util.Map;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.stream.Collectors;
 
 public class Patch extends Thread implements Simulation, Context {
     private final int id;
     private final int padding;
     private final int syncTicks;
+    private final int startTick;
+    private final int endTick;
+    private long tickCost = 0; // nanoseconds spent computing ticks, without waiting for neighbours
 
     private final Validator validator;
     private final Scenario scenario;
 
     private List<Person> population = new ArrayList<>();
-    private List<Person> allPopulation = new ArrayList<>();
+    private List<Person> layout = new ArrayList<>(); // the same persons in Morton order
+    private final List<Person> localPopulation;
+    private final InfectionKernel kernel;
+    private boolean extinct = false; // nobody in the population is infected or infectious
+    private final DigestBatch digests;
     private final List<TraceEntry> trace = new ArrayList<TraceEntry>();
-    private final Map<String, List<Statistics>> statistics = new HashMap<>();
+    private final List<int[]> traceIds = new ArrayList<>(); // ids of the persons in the trace entries
+    private final QueryCounters counters;
+    private final StatisticsSeries series;
+    private final long[] pending; // the counts of the ticks since the last flush, indexed by tick, query and state
+    private int pendingTicks = 0;
+    private int firstPendingTick = 0;
 
-    private final ArrayList<Channel1Direction> ingoing;
-    private final ArrayList<Channel1Direction> outgoing;
-    private final Channel1Direction[][] channels;
-    private final ArrayList<Integer> whichPatchesToLook; // stores the patch ids of the neighbour patches
+    private final List<Channel1Direction> ingoing; // one channel from each neighbour patch
+    private final List<Channel1Direction> outgoing; // one channel to each neighbour patch
 
     private final Rectangle mainGrid;
     private Rectangle lookingGrid;
@@ -46,68 +56,39 @@ public class Patch extends Thread implements Simulation, Context {
     private final ArrayList<Rectangle> obstacles = new ArrayList<Rectangle>();
 
     public Patch(Scenario scenario, Validator validator, int id, Rectangle grid, int padding,
-            Channel1Direction[][] channels, int syncTicks, List<Person> allPopulation) {
+            List<Channel1Direction> ingoing, List<Channel1Direction> outgoing, int syncTicks,
+            List<Person> localPopulation, int startTick, int endTick, InfectionKernel.Type kernel,
+            DigestChains chains, StatisticsSeries series) {
 
         this.mainGrid = grid;        
         this.id = id;
         this.scenario = scenario;
         this.validator = validator;
         this.padding = padding;
-        this.channels = channels;
+        this.ingoing = ingoing;
+        this.outgoing = outgoing;
         this.syncTicks = syncTicks;
-        this.allPopulation = allPopulation;
+        this.localPopulation = localPopulation;
+        this.kernel = kernel.create(scenario.getParameters().getInfectionRadius());
+        this.digests = new DigestBatch(chains);
+        this.startTick = startTick;
+        this.endTick = endTick;
 
         calculateLookingGrid();
+        this.counters = new QueryCounters(scenario.getQueries(), scenario.getGrid(), grid);
+        this.series = series;
+        // the initial state and one entry per tick until the next synchronization
+        this.pending = new long[(syncTicks + 1) * scenario.getQueries().size() * 4];
         calculateLookingObstacles();
-        
-        // getting ingoing and outgoing channels
-        this.ingoing = new ArrayList<>();
-        this.outgoing = new ArrayList<>();
-        this.whichPatchesToLook = calculateWhichPatches();
-        calculateOutgoingChannels();
-        calculateIngoingChannels();
 
         // initializing and structuring the properties of the object and setting up.
+        // the initial state is only part of the output if we start with the first tick
         this.populate();
-        this.initializeStatistics();
-        this.extendOutput();
-    }
-
-
-    /* 
-     * Calculates which patches are our neigbours. Also uses mayPropagateFrom(...) to see if a neighbour is accessible or not.
-     * nextGrid and nextId are grid and id of possible neighbours
-     */
-    private ArrayList<Integer> calculateWhichPatches() {
-        ArrayList<Integer> result = new ArrayList<>();
-        Iterator<Rectangle> patchIterator = Utils.getPatches(scenario);
-        Rectangle nextGrid;
-        int nextId = 0;
-        while (patchIterator.hasNext()) {
-            nextGrid = patchIterator.next();
-            if (lookingGrid.overlaps(nextGrid) 
-                    && !(nextId == this.id)
-                    && com.pseuco.cp23.simulation.common.Utils.mayPropagateFrom(scenario, mainGrid, nextGrid)) {
-                result.add(nextId);
-            }
-            nextId++;
+        if (startTick == 0) {
+            this.extendOutput(0);
         }
-        return result;
     }
 
-    /* 
-     * These two functions are to get the channels for ingoing and outgoing channels, list[a][b] is representing an outgoing channel from a to b
-     */
-    private void calculateOutgoingChannels() {
-        for (int i : whichPatchesToLook) {
-            this.outgoing.add(this.channels[this.id][i]);
-        }
-    }
-    private void calculateIngoingChannels() {
-        for (int i : whichPatchesToLook) {
-            this.ingoing.add(this.channels[i][this.id]);
-        }
-    }
 
     /* 
      * This method returns the obstacles in the area we are simulating.
@@ -124,166 +105,157 @@ public class Patch extends Thread implements Simulation, Context {
      * This method calculates and returns the grid with the padding added.
      */
     private void calculateLookingGrid() {
-        XY topLeft = this.mainGrid.getTopLeft();
-        XY bottomRight = this.mainGrid.getBottomRight();
-
-        int beginTopLeftX = Math.max(topLeft.getX() - this.padding, 0);
-        int beginTopLeftY = Math.max(topLeft.getY() - this.padding, 0);
-        XY newTopLeft = new XY(beginTopLeftX, beginTopLeftY);
-
-        int lastBottomRightX = Math
-                .min(bottomRight.getX() + this.padding, this.scenario.getGrid().getBottomRight().getX());
-        int lastBottomRightY = Math
-                .min(bottomRight.getY() + this.padding, this.scenario.getGrid().getBottomRight().getY());
-        XY newBottomRight = new XY(lastBottomRightX, lastBottomRightY);
-
-        this.lookingGrid = new Rectangle(newTopLeft, newBottomRight.sub(newTopLeft));
+        this.lookingGrid = Utils.getLookingGrid(this.scenario, this.mainGrid, this.padding);
     }
 
     /* 
-     * cloning people to inner population according to papulation and taking simulation area to account
+     * cloning people to inner population, the rocket already bucketed the persons inside our looking grid for us
      */
     private void populate() {
-        for (Person popPerson : allPopulation) {
-            if (lookingGrid.contains(popPerson.getPosition())) {
-                population.add(popPerson.clone(this));
+        setPopulation(localPopulation);
+    }
+
+    /*
+     * Clones the persons in Morton order, so persons close to each other on the grid are mostly
+     * allocated close to each other and the collision and infection scans visit them one after
+     * the other. The ticks still go through the persons in id order.
+     */
+    private void setPopulation(List<Person> persons) {
+        List<Person> sorted = new ArrayList<>(persons);
+        sorted.sort(new MortonComparator());
+        this.layout = new ArrayList<>(sorted.size());
+        for (Person person : sorted) {
+            this.layout.add(person.clone(this));
+        }
+        this.population = new ArrayList<>(this.layout);
+        this.population.sort(new PersonIDComparator());
+        this.counters.reset(this.population);
+        // the neighbours may have brought infected persons along
+        this.extinct = true;
+        for (Person person : this.population) {
+            if (person.isInfected() || person.isInfectious()) {
+                this.extinct = false;
             }
         }
-
     }
 
     /* 
-     * Same as slug class' initializeStatistics() function
+     * Collecting statistics based on the current SI²R values, the counters only count the persons in our mainGrid
+     * and only those which moved or changed their state since the previous tick.
+     * The values are buffered and added to the series of the rocket once the buffer is full.
      */
-    private void initializeStatistics() {
-        for (String queryKey : this.scenario.getQueries().keySet()) {
-            this.statistics.put(queryKey, new ArrayList<>());
+    private void extendStatistics(int step) {
+        this.counters.update(this.population);
+        if (this.pendingTicks == 0) {
+            this.firstPendingTick = step;
+        }
+        int size = this.scenario.getQueries().size() * 4;
+        this.counters.copyTo(this.pending, this.pendingTicks * size);
+        this.pendingTicks++;
+        if ((this.pendingTicks + 1) * size > this.pending.length) {
+            this.flushStatistics();
         }
     }
 
     /* 
-     * Collecting statistics based on the current SI²R values
-     * Also checks if mainGrid contains the person since we only want a patch's mainGrid to be included in statistics
+     * Adds the buffered values to the series shared by all patches.
      */
-    private void extendStatistics() {
-        for (Map.Entry<String, Query> entry : this.scenario.getQueries().entrySet()) {
-            final Query query = entry.getValue();
-            this.statistics.get(entry.getKey()).add(new Statistics(
-                    this.population.stream().filter(
-                        (Person person) -> person.isSusceptible()
-                                && query.getArea().contains(person.getPosition())
-                                && mainGrid.contains(person.getPosition())
-                    ).count(),
-                    this.population.stream().filter(
-                        (Person person) -> person.isInfected()
-                                && query.getArea().contains(person.getPosition())
-                                && mainGrid.contains(person.getPosition())
-                    ).count(),
-                    this.population.stream().filter(
-                        (Person person) -> person.isInfectious()
-                                && query.getArea().contains(person.getPosition())
-                                && mainGrid.contains(person.getPosition())
-                    ).count(),
-                    this.population.stream().filter(
-                        (Person person) -> person.isRecovered()
-                                && query.getArea().contains(person.getPosition())
-                                && mainGrid.contains(person.getPosition())
-                    ).count()
-            ));
+    private void flushStatistics() {
+        if (this.pendingTicks > 0) {
+            this.series.add(this.firstPendingTick, this.pendingTicks, this.pending);
+            this.pendingTicks = 0;
         }
     }
 
     /* 
      * Extends the statists and the trace for the current tick
-     * Checks if we are collecting traces
+     * Checks if we are collecting traces, the ids are recorded so the rocket can merge the traces of all patches
      */
-    private void extendOutput() {
+    private void extendOutput(int step) {
         if (this.scenario.getTrace()) {
-            this.population.sort(new PersonIDComparator());
-            this.trace.add(
-                new TraceEntry(
-                        this.population.stream()
-                                .filter((Person person) -> mainGrid.contains(person.getPosition()))
-                                .map(Person::getInfo)
-                                .collect(Collectors.toList())
-                )
-            );
+            List<Person> owned = this.population.stream()
+                    .filter((Person person) -> mainGrid.contains(person.getX(), person.getY()))
+                    .collect(Collectors.toList());
+            this.trace.add(new TraceEntry(owned.stream().map(Person::getInfo).collect(Collectors.toList())));
+            this.traceIds.add(owned.stream().mapToInt(Person::getId).toArray());
         }
-        this.extendStatistics();
+        this.extendStatistics(step);
     }
 
     /* 
-     * Run function of our patch.
+     * Run function of our patch, simulates the ticks from startTick to endTick.
      * If the time has come to sync, we first send and then get information from others.
      * Then we write the output.
      */
     public void run() {
-        int step = 0; // all ticks
-        while (step < scenario.getTicks()) {
+        int step = startTick; // all ticks
+        while (step < endTick) {
             validator.onPatchTick(step, this.id);
+            long tickStart = System.nanoTime();
             this.tick(step);
+            this.tickCost += System.nanoTime() - tickStart;
             step++;
-            if (step % syncTicks == 0) {
+            if ((step - startTick) % syncTicks == 0) {
                 sendInformationToOthers();
                 getInformationFromOthers();
             }
-            this.extendOutput();
+            this.extendOutput(step);
         }
+        this.flushStatistics();
     }
 
     /* 
      * Same tick() function as slug
      */
     private void tick(int step) {
-        for (Person person : this.population) {
+        // if nobody is infected or infectious, nobody can get infected and the persons only move
+        boolean active = false;
+        this.kernel.clear();
+        this.digests.advance(this.population, step);
+        for (int index = 0; index < this.population.size(); index++) {
+            final Person person = this.population.get(index);
             validator.onPersonTick(step, this.id, person.getId());
-            person.tick();
+            this.digests.tick(person, index);
+            if (!this.extinct) {
+                this.kernel.offer(person);
+                active |= person.isInfected() || person.isInfectious();
+            }
         }
 
         // bust the ghosts of all persons
         this.population.stream().forEach(Person::bustGhost);
 
-        // now compute how the infection spreads between the population
-        for (int i = 0; i < this.population.size(); i++) {
-            for (int j = i + 1; j < this.population.size(); j++) {
-                final Person iPerson = this.population.get(i);
-                final Person jPerson = this.population.get(j);
-                final XY iPosition = iPerson.getPosition();
-                final XY jPosition = jPerson.getPosition();
-                final int deltaX = Math.abs(iPosition.getX() - jPosition.getX());
-                final int deltaY = Math.abs(iPosition.getY() - jPosition.getY());
-                final int distance = deltaX + deltaY;
-                if (distance <= this.scenario.getParameters().getInfectionRadius()) {
-                    if (iPerson.isInfectious() && iPerson.isCoughing() && jPerson.isBreathing()) {
-                        jPerson.infect();
-                    }
-                    if (jPerson.isInfectious() && jPerson.isCoughing() && iPerson.isBreathing()) {
-                        iPerson.infect();
-                    }
-                }
-            }
+        if (!this.extinct) {
+            // now the emitters infect the persons around them, without any there is nothing to do
+            this.kernel.infect(this.layout);
+            // without emitters nobody got infected, so this stays extinct until the next synchronization
+            this.extinct = !active;
         }
     }
 
     /* 
      * First takes the people in its field then adds people from other channels
-     * Sorts people before setting them so that statistics are correct
+     * The persons are cloned and sorted when setting them so that statistics are correct
      */
     private void getInformationFromOthers() {
-        ArrayList<Person> newPeople = getPeopleFromYourField();
+        ArrayList<Person> newPeople = new ArrayList<>();
+        for (Person person : this.population) {
+            if (this.mainGrid.contains(person.getX(), person.getY())) {
+                newPeople.add(person);
+            }
+        }
         for (Channel1Direction ingoingChannel : ingoing) {
             try {
                 ArrayList<Person> temp = ingoingChannel.get();
                 for (Person person : temp) {
-                    if (this.lookingGrid.contains(person.getPosition()) && !this.mainGrid.contains(person.getPosition()))
-                        newPeople.add(person.clone(this));
+                    if (this.lookingGrid.contains(person.getX(), person.getY()) && !this.mainGrid.contains(person.getX(), person.getY()))
+                        newPeople.add(person);
                 }
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
         }
-        newPeople.sort(new PersonIDComparator());
-        this.population = newPeople;
+        setPopulation(newPeople);
     }
 
 
@@ -309,7 +281,7 @@ public class Patch extends Thread implements Simulation, Context {
         ArrayList<Person> result = new ArrayList<>();
 
         for (Person person : this.population) {
-            if (this.mainGrid.contains(person.getPosition())) {
+            if (this.mainGrid.contains(person.getX(), person.getY())) {
                 result.add(person.clone(this));
             }
         }
@@ -328,12 +300,56 @@ public class Patch extends Thread implements Simulation, Context {
 
     @Override
     public List<Person> getPopulation() {
-        return this.population;
+        return this.layout;
+    }
+
+    /**
+     * Returns the id of the patch.
+     *
+     * @return The id of the patch.
+     */
+    public int getPatchId() {
+        return this.id;
     }
 
+    /**
+     * Returns the persons inside the area owned by the patch.
+     *
+     * @return The persons inside the area owned by the patch.
+     */
+    public List<Person> getOwnedPopulation() {
+        return this.population.stream()
+                .filter((Person person) -> mainGrid.contains(person.getX(), person.getY()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the time spent computing ticks, excluding the time spent waiting for neighbours.
+     *
+     * @return The time spent computing ticks in nanoseconds.
+     */
+    public long getTickCost() {
+        return this.tickCost;
+    }
+
+    /**
+     * Returns the ids of the persons in the entries of the trace.
+     *
+     * @return The ids of the persons for each entry of the trace.
+     */
+    public List<int[]> getTraceIds() {
+        return this.traceIds;
+    }
+
+    /**
+     * Returns the trace of the patch, its statistics go straight into the series of the
+     * rocket.
+     *
+     * @return The trace of the patch without statistics.
+     */
     @Override
     public Output getOutput() {
-        return new Output(scenario, trace, statistics);
+        return new Output(scenario, trace, new HashMap<>());
     }
 
 }
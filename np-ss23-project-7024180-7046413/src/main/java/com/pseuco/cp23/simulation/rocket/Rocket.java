@@ -1,14 +1,20 @@
 package com.pseuco.cp23.simulation.rocket;
 
 import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.Parameters;
 import com.pseuco.cp23.model.Scenario;
 import com.pseuco.cp23.model.Rectangle;
 import com.pseuco.cp23.model.PersonInfo;
-import com.pseuco.cp23.model.Statistics;
 import com.pseuco.cp23.model.TraceEntry;
 import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.DigestChains;
+import com.pseuco.cp23.simulation.common.LightCone;
+import com.pseuco.cp23.simulation.common.Options;
 import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.common.Person.PersonIDComparator;
 import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.StopCondition;
+import com.pseuco.cp23.simulation.common.TraceStore;
 import com.pseuco.cp23.validator.InsufficientPaddingException;
 import com.pseuco.cp23.validator.Validator;
 
@@ -16,8 +22,10 @@ import java.lang.Math;
 import java.util.Map;
 import java.util.List;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Your implementation shall go into this class.
@@ -27,15 +35,37 @@ import java.util.ArrayList;
  * </p>
  */
 public class Rocket implements Simulation, Context {
+    /*
+     * Number of ticks between two points where we may rebalance the layout (rounded up to the sync ticks)
+     */
+    private static final int EPOCH_TICKS = 50;
+
+    /*
+     * We rebalance if the most expensive patch costs that much more than the average patch
+     */
+    private static final double IMBALANCE_THRESHOLD = 1.25;
+
+    /*
+     * Without any other reason for epochs, we check for extinction after this many ticks,
+     * doubling the interval after every check
+     */
+    private static final int EXTINCTION_CHECK_TICKS = 100;
 
     private int padding;
     private Scenario scenario;
+    private Rectangle grid;
     private Validator validator;
-    private int syncTicks;
+    private final int syncTicks;
+    private Layout layout;
+    private final Options options;
+    private DigestChains chains = null;
+    private boolean extinct = false;
+    private int stopTick = -1;
+    private LightCone cone = null;
 
     private final List<Person> population = new ArrayList<>();
-    private final List<TraceEntry> trace = new ArrayList<>();
-    private final Map<String, List<Statistics>> statistics = new HashMap<>();
+    private final TraceStore trace;
+    private StatisticsSeries series;
 
     /**
      * Constructs a rocket with the given parameters.
@@ -56,9 +86,36 @@ public class Rocket implements Simulation, Context {
      * @param validator The validator to be called.
      */
     public Rocket(Scenario scenario, int padding, Validator validator) throws InsufficientPaddingException {
+        this(scenario, padding, validator, new GridLayout(scenario), new Options());
+    }
+
+    /**
+     * Constructs a rocket simulating the patches of the given layout instead of the
+     * partition of the scenario.
+     *
+     * <p>
+     * The rocket honors all options: the patches compute the infection phase with the
+     * kernel of the options, optionally on precomputed digest chains, the boundaries of
+     * the patches optionally move during the run to balance their load and the run ends
+     * at the first tick the stop condition is reached at. The patches only stop at the
+     * end of an epoch, the rocket then truncates the output.
+     * </p>
+     *
+     * @param scenario  The scenario to simulate.
+     * @param padding   The padding to be used.
+     * @param validator The validator to be called.
+     * @param layout    The initial layout of the patches.
+     * @param options   The options of the run.
+     */
+    public Rocket(Scenario scenario, int padding, Validator validator, Layout layout, Options options)
+            throws InsufficientPaddingException {
         this.scenario = scenario;
+        this.options = options;
+        this.trace = new TraceStore(scenario.getPopulation());
+        this.grid = scenario.getGrid();
         this.padding = padding;
         this.validator = validator;
+        this.layout = layout;
         this.syncTicks = calcSyncTicks();
         this.populate();
     }
@@ -68,16 +125,8 @@ public class Rocket implements Simulation, Context {
      */
     private int calcSyncTicks() throws InsufficientPaddingException {
         int syncTicks = 0;
-        double uncertainity = 0;
-
-        while (uncertainity <= padding) {
+        while (getRequiredPadding(scenario.getParameters(), syncTicks + 1) <= padding) {
             syncTicks++;
-            uncertainity = 2 * syncTicks + scenario.getParameters().getInfectionRadius()
-                    * Math.ceil( (double) syncTicks / scenario.getParameters().getIncubationTime());
-        }
-
-        if (uncertainity > padding){
-            syncTicks--;
         }
 
         if (syncTicks == 0) {
@@ -87,6 +136,19 @@ public class Rocket implements Simulation, Context {
         return syncTicks;
     }
 
+    /**
+     * Returns the minimal padding which allows simulating the given number of ticks
+     * between two synchronizations.
+     *
+     * @param parameters The parameters of the scenario.
+     * @param syncTicks  The number of ticks between two synchronizations.
+     * @return The minimal padding.
+     */
+    public static int getRequiredPadding(Parameters parameters, int syncTicks) {
+        return 2 * syncTicks + parameters.getInfectionRadius()
+                * (int) Math.ceil((double) syncTicks / parameters.getIncubationTime());
+    }
+
     /* 
      * We populate the context with persons based on the respective info objects
      */
@@ -102,134 +164,273 @@ public class Rocket implements Simulation, Context {
 
     @Override
     public Output getOutput() {
-        return new Output(this.scenario, this.trace, this.statistics);
+        Output output = new Output(this.scenario, this.trace.asList(), this.series.getStatistics());
+        return this.stopTick < 0 ? output : output.truncate(this.stopTick);
     }
 
     /* 
-     * Here we initialize and run patches,
-     * giving all of them our channel array,
+     * Here we initialize and run patches, one epoch after the other,
+     * giving each of them the channels to and from its neighbours,
      * then we start and wait for them to finish their job,
-     * after all are joined, we run our output creator
+     * after all are joined, we run our output creator and collect the persons the patches own.
+     * Without rebalancing, a stop condition and dormant patches the epochs only end to check for extinction,
+     * once nobody is infected or infectious anymore there is a single epoch spanning the remaining ticks.
+     * Without a trace, every epoch only starts with the persons which may still influence the queries,
+     * patches far away from all query areas thus become dormant.
      */
     @Override
     public void run() {
-        int numOfPartitions = this.scenario.getNumberOfPatches();
-        Channel1Direction channels[][] = createChannels(numOfPartitions);
-        ArrayList<Patch> patches = createPatches(numOfPartitions, channels);
-
-        for (Patch patch : patches) {
-            patch.start();
+        this.series = new StatisticsSeries(new ArrayList<>(this.scenario.getQueries().keySet()), this.scenario.getTicks());
+        if (this.options.getPrecomputeDigests()) {
+            // the persons are identified by their index in the population of the scenario
+            this.chains = new DigestChains(this.scenario.getPopulation(), this.scenario.getTicks(),
+                    this.scenario.getTrace());
+        }
+        if (!this.scenario.getTrace()) {
+            this.cone = new LightCone(this.scenario);
         }
 
-        for (Patch patch : patches) {
-            try {
-                patch.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        List<Person> owned = this.population;
+        int tick = 0;
+        int extinctionCheckTicks = EXTINCTION_CHECK_TICKS;
+        do {
+            if (this.cone != null) {
+                owned = this.cone.prune(owned, this.scenario.getTicks() - tick);
+            }
+            if (!this.extinct && isExtinct(owned)) {
+                // from now on the epochs synchronize less often, see currentSyncTicks
+                this.extinct = true;
+            }
+
+            int epochEnd = Math.min(tick + epochTicks(), this.scenario.getTicks());
+            boolean[] dormant = findDormantPatches(owned, epochEnd - tick);
+            int endTick = this.scenario.getTicks();
+            if (this.options.getRebalance() || this.options.hasStop() || contains(dormant, true)) {
+                endTick = epochEnd;
+            } else if (!this.extinct) {
+                int checkTicks = this.syncTicks * ((extinctionCheckTicks + this.syncTicks - 1) / this.syncTicks);
+                endTick = Math.min(tick + checkTicks, this.scenario.getTicks());
+                extinctionCheckTicks *= 2;
+            }
+
+            if (this.chains != null) {
+                // the patches only read the chains, so the window moves between the epochs and bounds them
+                this.chains.advance(tick);
+                endTick = Math.min(endTick, this.chains.getEnd());
+            }
+
+            ArrayList<Patch> patches = createPatches(owned, tick, endTick, dormant);
+
+            for (Patch patch : patches) {
+                patch.start();
+            }
+
+            for (Patch patch : patches) {
+                try {
+                    patch.join();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            writeOutputs(patches, tick == 0 ? 0 : tick + 1, endTick - tick + (tick == 0 ? 1 : 0));
+            // all patches have added the values of the ticks of the epoch at their synchronizations
+            this.series.complete(endTick);
+
+            if (this.options.hasStop()) {
+                // all patches have finished the epoch, so they agree on the statistics of its ticks
+                this.stopTick = StopCondition.find(this.options.getStop(), this.series.getStatistics(), tick == 0 ? 0 : tick + 1,
+                        endTick + 1, this.scenario.getTicks());
+                if (this.stopTick >= 0) {
+                    break;
+                }
+            }
+
+            owned = new ArrayList<>();
+            for (Patch patch : patches) {
+                owned.addAll(patch.getOwnedPopulation());
+            }
+            owned.sort(new PersonIDComparator());
+
+            if (this.options.getRebalance()) {
+                rebalanceLayout(patches, dormant.length);
+            }
+            tick = endTick;
+        } while (tick < this.scenario.getTicks());
+    }
+
+    /*
+     * Whether nobody is infected or infectious, then nobody can ever get infected again.
+     */
+    private static boolean isExtinct(List<Person> population) {
+        for (Person person : population) {
+            if (person.isInfected() || person.isInfectious()) {
+                return false;
             }
         }
+        return true;
+    }
 
-        writeOutputs(patches);
+    /*
+     * Number of ticks between two synchronizations in the current epoch. Once the epidemic is extinct
+     * the infection states cannot change anymore, only the movement term 2 * syncTicks of the required
+     * padding remains, so we may synchronize less often. The configured sync ticks stay untouched.
+     */
+    private int currentSyncTicks() {
+        return this.extinct ? this.padding / 2 : this.syncTicks;
     }
 
-    /* 
-     * This function creates patches according to their neighbours, neighbour calculation happens inside 
-     * Patch(...) creator function
+    /*
+     * Number of ticks between two rebalancing points, a multiple of the sync ticks.
+     */
+    private int epochTicks() {
+        int syncTicks = currentSyncTicks();
+        return syncTicks * Math.max(1, (EPOCH_TICKS + syncTicks - 1) / syncTicks);
+    }
+
+    /*
+     * A patch is dormant for the given number of ticks if nobody can reach its area within them,
+     * persons move at most one cell along each axis per tick. Dormant patches own nobody during
+     * the epoch, so they neither need a thread nor take part in the synchronization.
      */
-    private ArrayList<Patch> createPatches(int numOfPartitions, Channel1Direction[][] channels) {
-        Iterator<Rectangle> patchIterator = Utils.getPatches(this.scenario);
+    private boolean[] findDormantPatches(List<Person> owned, int ticks) {
+        List<Rectangle> reaches = new ArrayList<>();
+        for (Rectangle grid : this.layout.getPatches()) {
+            reaches.add(Utils.getLookingGrid(this.scenario, grid, ticks));
+        }
+        List<List<Person>> buckets = Utils.bucketPopulation(this.scenario, reaches, owned);
+        boolean[] dormant = new boolean[reaches.size()];
+        for (int id = 0; id < dormant.length; id++) {
+            dormant[id] = buckets.get(id).isEmpty();
+        }
+        return dormant;
+    }
+
+    private static boolean contains(boolean[] values, boolean value) {
+        for (boolean element : values) {
+            if (element == value) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        ArrayList<Patch> patches = new ArrayList<Patch>();
+    /*
+     * Moves strips from the most expensive patches to their neighbours if the most expensive
+     * patch is considerably more expensive than the average patch. Dormant patches cost nothing.
+     */
+    private void rebalanceLayout(List<Patch> patches, int numberOfPatches) {
+        double[] costs = new double[numberOfPatches];
+        double total = 0;
+        double maximum = 0;
+        for (Patch patch : patches) {
+            costs[patch.getPatchId()] = patch.getTickCost();
+            total += patch.getTickCost();
+            maximum = Math.max(maximum, patch.getTickCost());
+        }
+        if (total > 0 && maximum > IMBALANCE_THRESHOLD * total / numberOfPatches) {
+            this.layout = this.layout.rebalance(costs);
+        }
+    }
 
+    /* 
+     * This function creates the patches which are not dormant according to their neighbours, the neighbours
+     * of all patches are calculated at once from the topology of the scenario, dormant patches are nobody's neighbour
+     */
+    private ArrayList<Patch> createPatches(List<Person> owned, int startTick, int endTick, boolean[] dormant) {
+        List<Rectangle> grids = this.layout.getPatches();
+        int numOfPartitions = grids.size();
+        List<List<Integer>> neighbours = Topology.of(this.scenario).getNeighbours(grids, this.padding);
         for (int id = 0; id < numOfPartitions; id++) {
-            patches.add(new Patch(scenario, validator, id, patchIterator.next(), padding, channels, syncTicks,
-                    population));
+            if (dormant[id]) {
+                neighbours.set(id, new ArrayList<>());
+            } else {
+                neighbours.get(id).removeIf((Integer neighbour) -> dormant[neighbour]);
+            }
+        }
+        Map<Long, Channel1Direction> channels = createChannels(neighbours);
+        int syncTicks = currentSyncTicks();
+
+        List<Rectangle> lookingGrids = new ArrayList<>();
+        for (Rectangle grid : grids) {
+            lookingGrids.add(Utils.getLookingGrid(this.scenario, grid, this.padding));
         }
-        return patches;
+        List<List<Person>> buckets = Utils.bucketPopulation(this.scenario, lookingGrids, owned);
+
+        // the patches clone their persons and compute their obstacles and initial statistics independently
+        return IntStream.range(0, numOfPartitions).parallel()
+                .filter((int id) -> !dormant[id])
+                .mapToObj((int id) -> {
+                    List<Channel1Direction> ingoing = new ArrayList<>();
+                    List<Channel1Direction> outgoing = new ArrayList<>();
+                    for (int neighbour : neighbours.get(id)) {
+                        ingoing.add(channels.get(channelKey(neighbour, id)));
+                        outgoing.add(channels.get(channelKey(id, neighbour)));
+                    }
+                    return new Patch(scenario, validator, id, grids.get(id), padding, ingoing, outgoing, syncTicks,
+                            buckets.get(id), startTick, endTick, options.getKernel(), chains, series);
+                })
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     /* 
-     * Simple function to fill in the channels array we have created with channel objects
+     * Creates one channel for each direction of each edge of the neighbour graph, the neighbour relation is symmetric
      */
-    private Channel1Direction[][] createChannels(int numOfPartitions) {
-        Channel1Direction channels[][] = new Channel1Direction[numOfPartitions][numOfPartitions];
-        for (int i = 0; i < numOfPartitions; i++) {
-            for (int k = 0; k < numOfPartitions; k++) {
-                channels[i][k] = new Channel1Direction();
+    private Map<Long, Channel1Direction> createChannels(List<List<Integer>> neighbours) {
+        Map<Long, Channel1Direction> channels = new HashMap<>();
+        for (int i = 0; i < neighbours.size(); i++) {
+            for (int k : neighbours.get(i)) {
+                channels.put(channelKey(i, k), new Channel1Direction());
             }
         }
         return channels;
     }
 
+    private static long channelKey(int from, int to) {
+        return ((long) from << 32) | to;
+    }
+
     /* 
-     * This function is to get the outputs from the patches and write the results in the rocket object's output properly
-     * allPersonInfo: holds (will hold) person info for all of the patches
-     * tempOutput: output of the patch we are currently analizing (tempStatistics and tempTraceList are self explanotory)
-     * we are extending the traces and statistics from the information from each patch
+     * This function is to get the traces from the patches of an epoch and append them to the rocket object's trace properly,
+     * the patches already added their statistics to the series while running
+     * offset: the tick the first entry of the traces of the patches belongs to, the store holds exactly the ticks before
+     * length: the number of entries of the traces of the patches
+     * we assemble the entries of the epoch from the persons owned by each patch,
+     * then the store encodes them one after the other
      */
-    private void writeOutputs(ArrayList<Patch> patches) {
-        ArrayList<ArrayList<PersonInfo>> allPersonInfo = new ArrayList<ArrayList<PersonInfo>>();
-
-        for (int i = 0; i < this.scenario.getTicks()+1; i++) {
-            allPersonInfo.add(new ArrayList<PersonInfo>());
+    private void writeOutputs(ArrayList<Patch> patches, int offset, int length) {
+        if (!this.scenario.getTrace()) {
+            return;
+        }
+        assert this.trace.size() == offset;
+        List<PersonInfo[]> entries = new ArrayList<>(length);
+        for (int index = 0; index < length; index++) {
+            entries.add(new PersonInfo[this.population.size()]);
         }
 
         for (Patch patch : patches) {
-            Output tempOutput = patch.getOutput();
-            Map<String, List<Statistics>> tempStatistics = tempOutput.getStatistics();
-            List<TraceEntry> tempTraceList = tempOutput.getTrace();
-            
-            // merging statistics
-            for (Map.Entry<String, List<Statistics>> entry : tempStatistics.entrySet()) {
-                String key = entry.getKey();
-                List<Statistics> patchStats = entry.getValue();
-            
-                if (statistics.containsKey(key)) {
-                    int i = 0;
-                    for (Statistics existingStat : statistics.get(key)) {
-                        existingStat = new Statistics(existingStat.getSusceptible() + patchStats.get(i).getSusceptible(),
-                                              existingStat.getInfected() + patchStats.get(i).getInfected(),
-                                              existingStat.getInfectious() + patchStats.get(i).getInfectious(),
-                                              existingStat.getRecovered() + patchStats.get(i).getRecovered());
-                        statistics.get(key).set(i, existingStat);
-                        i++;
-                    }
-                } else {
-                    statistics.put(key, patchStats);
+            List<TraceEntry> tempTraceList = patch.getOutput().getTrace();
+
+            // merging traces, every person is owned by exactly one patch in each tick so we put it into its slot
+            List<int[]> tempTraceIds = patch.getTraceIds();
+            for (int index = 0; index < tempTraceList.size(); index++) {
+                List<PersonInfo> personInfos = tempTraceList.get(index).getPopulation();
+                int[] ids = tempTraceIds.get(index);
+                PersonInfo[] slots = entries.get(index);
+                for (int k = 0; k < ids.length; k++) {
+                    slots[ids[k]] = personInfos.get(k);
                 }
             }
-           
-            // merging traces
-            int index = 0;
-            for (TraceEntry traceEntry : tempTraceList) {
-                allPersonInfo.get(index).addAll(traceEntry.getPopulation());
-                index++;
-            }
         }
 
-        // writing info to the trace of the class.
-        if (this.scenario.getTrace()) {
-            for (ArrayList<PersonInfo> personInfos : allPersonInfo) {
-                List<PersonInfo> emptyInfo = new ArrayList<>();
-                TraceEntry tempTraceEntry = new TraceEntry(emptyInfo);
-
-                // for each trace entry, get the population names in order
-                for (int i = 0; i < this.population.size(); i++) { 
-                    String orderedName = this.population.get(i).getName();
-                    for (int k = 0; k < this.population.size(); k++) {
-                        if (orderedName.equals(personInfos.get(k).getName())) {
-                            tempTraceEntry.getPopulation().add(personInfos.get(k));
-                        }
-                    } 
-                }
-                this.trace.add(tempTraceEntry);
-            }
+        for (PersonInfo[] slots : entries) {
+            this.trace.add(new TraceEntry(Arrays.asList(slots)));
         }
     }
 
     @Override
     public Rectangle getGrid() {
-        return this.scenario.getGrid();
+        return this.grid;
     }
 
     @Override
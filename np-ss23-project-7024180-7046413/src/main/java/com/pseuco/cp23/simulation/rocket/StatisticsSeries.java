@@ -0,0 +1,116 @@
+package com.pseuco.cp23.simulation.rocket;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Statistics;
+
+/**
+ * The SI²R values of every query and tick of a run as primitive counts.
+ *
+ * <p>
+ * Every patch adds the values of the area it owns straight into the shared counts at each
+ * synchronization, so the series never holds more than one count per query, tick and state
+ * and nothing is left to sum up once the patches have been joined. The additions are atomic,
+ * the patches never wait for each other to add their values. The counts are only boxed into
+ * <em>Statistics</em> objects when they are read, e.g., when the output is serialized.
+ * </p>
+ */
+public class StatisticsSeries {
+    private static final int STATES = InfectionState.State.values().length;
+
+    private final List<String> keys;
+    private final int ticks;
+    private final AtomicLongArray counts; // the count of the state s within the query q at tick t is at ((q * ticks) + t) * STATES + s
+    private int completed = 0; // the number of ticks all patches have added their values of
+
+    /**
+     * Constructs an empty series.
+     *
+     * @param keys  The keys of the queries, in the order of the query counters.
+     * @param ticks The number of ticks of the run, the series holds one more entry.
+     */
+    public StatisticsSeries(List<String> keys, int ticks) {
+        this.keys = new ArrayList<>(keys);
+        this.ticks = ticks + 1;
+        this.counts = new AtomicLongArray(this.keys.size() * this.ticks * STATES);
+    }
+
+    /**
+     * Adds the values of consecutive ticks to the counts.
+     *
+     * <p>
+     * Any number of threads may add values concurrently, e.g., every patch at each
+     * synchronization, the values of a tick are visible once it has been completed.
+     * </p>
+     *
+     * @param firstTick The tick of the first values.
+     * @param ticks     The number of ticks.
+     * @param values    The values indexed by tick, query and state.
+     */
+    public void add(int firstTick, int ticks, long[] values) {
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int query = 0; query < this.keys.size(); query++) {
+                int target = (query * this.ticks + firstTick + tick) * STATES;
+                int source = (tick * this.keys.size() + query) * STATES;
+                for (int state = 0; state < STATES; state++) {
+                    if (values[source + state] != 0) {
+                        this.counts.getAndAdd(target + state, values[source + state]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes all ticks up to the given tick visible.
+     *
+     * <p>
+     * All patches must have added their values of these ticks, e.g., because they have
+     * been joined.
+     * </p>
+     *
+     * @param tick The last tick to make visible.
+     */
+    public void complete(int tick) {
+        this.completed = Math.max(this.completed, Math.min(tick, this.ticks - 1) + 1);
+    }
+
+    /**
+     * Returns the statistics of every query up to the last tick which has been completed,
+     * boxing the values only when an entry is read.
+     *
+     * @return The statistics for every query.
+     */
+    public Map<String, List<Statistics>> getStatistics() {
+        Map<String, List<Statistics>> statistics = new HashMap<>();
+        for (int query = 0; query < this.keys.size(); query++) {
+            final int offset = query * this.ticks * STATES;
+            statistics.put(this.keys.get(query), new AbstractList<Statistics>() {
+                @Override
+                public Statistics get(int tick) {
+                    if (tick < 0 || tick >= completed) {
+                        throw new IndexOutOfBoundsException(tick);
+                    }
+                    int index = offset + tick * STATES;
+                    return new Statistics(
+                            counts.get(index + InfectionState.State.SUSCEPTIBLE.ordinal()),
+                            counts.get(index + InfectionState.State.INFECTED.ordinal()),
+                            counts.get(index + InfectionState.State.INFECTIOUS.ordinal()),
+                            counts.get(index + InfectionState.State.RECOVERED.ordinal()));
+                }
+
+                @Override
+                public int size() {
+                    return completed;
+                }
+            });
+        }
+        return statistics;
+    }
+}
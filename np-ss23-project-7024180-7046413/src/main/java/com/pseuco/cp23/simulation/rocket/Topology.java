@@ -0,0 +1,261 @@
+package com.pseuco.cp23.simulation.rocket;
+
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Precomputed propagation topology of a scenario.
+ *
+ * <p>
+ * Information propagates from a cell to every cell within the infection radius and to
+ * every directly adjacent cell, as long as neither of them is covered by an obstacle
+ * (see <em>Utils.mayPropagateFrom</em> in the common package). This class labels the
+ * connected components of that relation once per scenario, so checking whether
+ * information may propagate between two areas boils down to comparing the components
+ * present in both areas.
+ * </p>
+ */
+public class Topology {
+    private static final Map<List<Rectangle>, Topology> cache = new WeakHashMap<>();
+
+    private static final int OBSTACLE = -1;
+    private static final int UNVISITED = -2;
+
+    private final int width;
+    private final int height;
+    private final int infectionRadius;
+
+    private final BitSet obstacles;
+    private final int[] components;
+    private int numberOfComponents = 0;
+
+    /**
+     * Returns the topology of the given scenario, analysing it only once.
+     *
+     * <p>
+     * Copies of a scenario share their obstacles, so they share their topology as well.
+     * </p>
+     *
+     * @param scenario The scenario.
+     * @return The topology of the scenario.
+     */
+    public static Topology of(Scenario scenario) {
+        synchronized (cache) {
+            Topology topology = cache.get(scenario.getObstacles());
+            if (topology == null
+                    || topology.width != scenario.getGridSize().getX()
+                    || topology.height != scenario.getGridSize().getY()
+                    || topology.infectionRadius != scenario.getParameters().getInfectionRadius()) {
+                topology = new Topology(scenario);
+                cache.put(scenario.getObstacles(), topology);
+            }
+            return topology;
+        }
+    }
+
+    /**
+     * Analyses the topology of the given scenario.
+     *
+     * @param scenario The scenario.
+     */
+    public Topology(Scenario scenario) {
+        this.width = scenario.getGridSize().getX();
+        this.height = scenario.getGridSize().getY();
+        this.infectionRadius = scenario.getParameters().getInfectionRadius();
+        this.obstacles = new BitSet(this.width * this.height);
+        this.components = new int[this.width * this.height];
+
+        rasterizeObstacles(scenario.getObstacles());
+        labelComponents();
+    }
+
+    /*
+     * Marks every cell covered by an obstacle in the obstacle bitset.
+     */
+    private void rasterizeObstacles(List<Rectangle> obstacles) {
+        for (Rectangle obstacle : obstacles) {
+            int fromX = Math.max(obstacle.getTopLeft().getX(), 0);
+            int toX = Math.min(obstacle.getBottomRight().getX(), this.width);
+            int fromY = Math.max(obstacle.getTopLeft().getY(), 0);
+            int toY = Math.min(obstacle.getBottomRight().getY(), this.height);
+            if (fromX >= toX) {
+                continue;
+            }
+            for (int y = fromY; y < toY; y++) {
+                this.obstacles.set(y * this.width + fromX, y * this.width + toX);
+            }
+        }
+    }
+
+    /*
+     * Flood fills the grid with a plain int queue and labels every free cell with the
+     * id of its component. The offsets are the same as in mayPropagateFrom(...).
+     */
+    private void labelComponents() {
+        int infectionRadius = this.infectionRadius;
+        List<int[]> offsets = new ArrayList<>();
+        for (int deltaX = -infectionRadius; deltaX <= infectionRadius; deltaX++) {
+            for (int deltaY = -infectionRadius; deltaY <= infectionRadius; deltaY++) {
+                if ((deltaX != 0 || deltaY != 0)
+                        && (Math.abs(deltaX) + Math.abs(deltaY) <= infectionRadius
+                                || (Math.abs(deltaX) <= 1 && Math.abs(deltaY) <= 1))) {
+                    offsets.add(new int[] { deltaX, deltaY });
+                }
+            }
+        }
+
+        for (int cell = 0; cell < this.components.length; cell++) {
+            this.components[cell] = this.obstacles.get(cell) ? OBSTACLE : UNVISITED;
+        }
+
+        int[] queue = new int[this.components.length];
+        for (int start = 0; start < this.components.length; start++) {
+            if (this.components[start] != UNVISITED) {
+                continue;
+            }
+            int label = this.numberOfComponents++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            this.components[start] = label;
+            while (head < tail) {
+                int cell = queue[head++];
+                int x = cell % this.width;
+                int y = cell / this.width;
+                for (int[] offset : offsets) {
+                    int neighbourX = x + offset[0];
+                    int neighbourY = y + offset[1];
+                    if (neighbourX < 0 || neighbourX >= this.width || neighbourY < 0 || neighbourY >= this.height) {
+                        continue;
+                    }
+                    int neighbour = neighbourY * this.width + neighbourX;
+                    if (this.components[neighbour] == UNVISITED) {
+                        this.components[neighbour] = label;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether there is an obstacle on the given cell.
+     *
+     * @param x The <em>x</em>-coordinate of the cell.
+     * @param y The <em>y</em>-coordinate of the cell.
+     * @return Whether there is an obstacle on the given cell.
+     */
+    public boolean onObstacle(int x, int y) {
+        return this.obstacles.get(y * this.width + x);
+    }
+
+    /**
+     * Returns the component of the given cell or <em>-1</em> if it is on an obstacle.
+     *
+     * @param x The <em>x</em>-coordinate of the cell.
+     * @param y The <em>y</em>-coordinate of the cell.
+     * @return The component of the given cell.
+     */
+    public int getComponent(int x, int y) {
+        return this.components[y * this.width + x];
+    }
+
+    /**
+     * Returns the number of components of the grid.
+     *
+     * @return The number of components of the grid.
+     */
+    public int getNumberOfComponents() {
+        return this.numberOfComponents;
+    }
+
+    /**
+     * Returns the components of all free cells within the given area.
+     *
+     * @param area The area, cells outside of the grid are ignored.
+     * @return The set of components present in the area.
+     */
+    public BitSet getComponents(Rectangle area) {
+        BitSet result = new BitSet(this.numberOfComponents);
+        int fromX = Math.max(area.getTopLeft().getX(), 0);
+        int toX = Math.min(area.getBottomRight().getX(), this.width);
+        int fromY = Math.max(area.getTopLeft().getY(), 0);
+        int toY = Math.min(area.getBottomRight().getY(), this.height);
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                int component = this.components[y * this.width + x];
+                if (component != OBSTACLE) {
+                    result.set(component);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes whether it is possible to propagate information from a <em>source area</em>
+     * to a <em>target area</em> after an arbitrary amount of ticks.
+     *
+     * <p>
+     * Gives the same answer as <em>Utils.mayPropagateFrom</em> in the common package.
+     * </p>
+     *
+     * @param source The <em>source area</em>.
+     * @param target The <em>target area</em>.
+     * @return Whether information may propagate from the <em>source</em> to the <em>target
+     *         area</em>.
+     */
+    public boolean mayPropagateFrom(Rectangle source, Rectangle target) {
+        return getComponents(source).intersects(getComponents(target));
+    }
+
+    /**
+     * Computes the neighbours of every patch, i.e., the patches whose area overlaps the
+     * padding of the patch and which information may propagate from.
+     *
+     * @param patches The areas owned by the patches, indexed by patch id.
+     * @param padding The padding around each patch.
+     * @return The ids of the neighbours for each patch.
+     */
+    public List<List<Integer>> getNeighbours(List<Rectangle> patches, int padding) {
+        List<BitSet> patchComponents = new ArrayList<>();
+        for (Rectangle patch : patches) {
+            patchComponents.add(getComponents(patch));
+        }
+
+        List<List<Integer>> result = new ArrayList<>();
+        for (int id = 0; id < patches.size(); id++) {
+            Rectangle lookingGrid = getLookingGrid(patches.get(id), padding);
+            List<Integer> neighbours = new ArrayList<>();
+            for (int other = 0; other < patches.size(); other++) {
+                if (other != id
+                        && lookingGrid.overlaps(patches.get(other))
+                        && patchComponents.get(id).intersects(patchComponents.get(other))) {
+                    neighbours.add(other);
+                }
+            }
+            result.add(neighbours);
+        }
+        return result;
+    }
+
+    /*
+     * Same as Utils.getLookingGrid(...), we must not keep the scenario since its obstacles are the key of the cache.
+     */
+    private Rectangle getLookingGrid(Rectangle grid, int padding) {
+        XY topLeft = new XY(
+                Math.max(grid.getTopLeft().getX() - padding, 0),
+                Math.max(grid.getTopLeft().getY() - padding, 0));
+        XY bottomRight = new XY(
+                Math.min(grid.getBottomRight().getX() + padding, this.width),
+                Math.min(grid.getBottomRight().getY() + padding, this.height));
+        return new Rectangle(topLeft, bottomRight.sub(topLeft));
+    }
+}
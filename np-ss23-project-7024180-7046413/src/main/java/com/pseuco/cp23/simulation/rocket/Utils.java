@@ -1,10 +1,13 @@
 package com.pseuco.cp23.simulation.rocket;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import com.pseuco.cp23.model.Rectangle;
 import com.pseuco.cp23.model.Scenario;
 import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Person;
 
 /**
  * Some useful utilities for the concurrent implementation.
@@ -76,4 +79,109 @@ public class Utils {
     static public Iterator<Rectangle> getPatches(Scenario scenario) {
         return new PatchesIterator(scenario);
     }
+
+    /**
+     * Returns the area a patch has to simulate, i.e., its area extended by the padding
+     * and clipped to the grid.
+     *
+     * @param scenario The scenario.
+     * @param grid     The area owned by the patch.
+     * @param padding  The padding around the patch.
+     * @return The area including the padding.
+     */
+    static public Rectangle getLookingGrid(Scenario scenario, Rectangle grid, int padding) {
+        XY topLeft = grid.getTopLeft();
+        XY bottomRight = grid.getBottomRight();
+        XY gridSize = scenario.getGridSize();
+
+        XY newTopLeft = new XY(Math.max(topLeft.getX() - padding, 0), Math.max(topLeft.getY() - padding, 0));
+        XY newBottomRight = new XY(
+                Math.min(bottomRight.getX() + padding, gridSize.getX()),
+                Math.min(bottomRight.getY() + padding, gridSize.getY()));
+
+        return new Rectangle(newTopLeft, newBottomRight.sub(newTopLeft));
+    }
+
+    /**
+     * Distributes the population over the given areas in a single pass.
+     *
+     * <p>
+     * The grid is divided into coarse blocks, each knowing the areas overlapping it, so
+     * every person is only checked against a handful of candidate areas. A person is
+     * added to every area containing it, the order of the population is preserved.
+     * </p>
+     *
+     * @param scenario   The scenario.
+     * @param areas      The (possibly overlapping) areas.
+     * @param population The population to distribute.
+     * @return The persons inside each of the areas.
+     */
+    static public List<List<Person>> bucketPopulation(Scenario scenario, List<Rectangle> areas,
+            List<Person> population) {
+        final int width = scenario.getGridSize().getX();
+        final int height = scenario.getGridSize().getY();
+        final int blocksPerSide = Math.max(1, 2 * (int) Math.ceil(Math.sqrt(areas.size())));
+        final int blockWidth = Math.max(1, (width + blocksPerSide - 1) / blocksPerSide);
+        final int blockHeight = Math.max(1, (height + blocksPerSide - 1) / blocksPerSide);
+        final int blocksX = (width + blockWidth - 1) / blockWidth;
+        final int blocksY = (height + blockHeight - 1) / blockHeight;
+
+        List<List<Integer>> candidates = new ArrayList<>();
+        for (int block = 0; block < blocksX * blocksY; block++) {
+            candidates.add(new ArrayList<>());
+        }
+        for (int id = 0; id < areas.size(); id++) {
+            Rectangle area = areas.get(id);
+            int fromX = Math.max(area.getTopLeft().getX(), 0) / blockWidth;
+            int toX = Math.min(area.getBottomRight().getX() - 1, width - 1) / blockWidth;
+            int fromY = Math.max(area.getTopLeft().getY(), 0) / blockHeight;
+            int toY = Math.min(area.getBottomRight().getY() - 1, height - 1) / blockHeight;
+            for (int blockY = fromY; blockY <= toY; blockY++) {
+                for (int blockX = fromX; blockX <= toX; blockX++) {
+                    candidates.get(blockY * blocksX + blockX).add(id);
+                }
+            }
+        }
+
+        List<List<Person>> result = new ArrayList<>();
+        for (int id = 0; id < areas.size(); id++) {
+            result.add(new ArrayList<>());
+        }
+        for (Person person : population) {
+            XY position = person.getPosition();
+            int block = (position.getY() / blockHeight) * blocksX + position.getX() / blockWidth;
+            for (int id : candidates.get(block)) {
+                if (areas.get(id).contains(position)) {
+                    result.get(id).add(person);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes by how much the boundary between two neighbouring stripes should move to
+     * balance their costs, assuming the cost is spread evenly over each stripe.
+     *
+     * <p>
+     * Only half of the estimated distance is used to avoid oscillating boundaries. Both
+     * stripes keep a size of at least one cell.
+     * </p>
+     *
+     * @param lowerSize The size of the stripe before the boundary.
+     * @param upperSize The size of the stripe after the boundary.
+     * @param lowerCost The cost of the stripe before the boundary.
+     * @param upperCost The cost of the stripe after the boundary.
+     * @return The (signed) distance to move the boundary by.
+     */
+    static public int shiftBoundary(int lowerSize, int upperSize, double lowerCost, double upperCost) {
+        if (lowerCost > upperCost) {
+            int shift = (int) (lowerSize * (lowerCost - upperCost) / (4 * lowerCost));
+            return -Math.min(shift, lowerSize - 1);
+        } else if (upperCost > lowerCost) {
+            int shift = (int) (upperSize * (upperCost - lowerCost) / (4 * upperCost));
+            return Math.min(shift, upperSize - 1);
+        }
+        return 0;
+    }
 }
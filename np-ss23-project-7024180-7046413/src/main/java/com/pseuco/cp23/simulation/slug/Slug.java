@@ -1,38 +1,80 @@
 package com.pseuco.cp23.simulation.slug;
 
 import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.DigestBatch;
+import com.pseuco.cp23.simulation.common.DigestChains;
+import com.pseuco.cp23.simulation.common.InfectionKernel;
+import com.pseuco.cp23.simulation.common.LightCone;
+import com.pseuco.cp23.simulation.common.Options;
 import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.common.Person.MortonComparator;
+import com.pseuco.cp23.simulation.common.QueryCounters;
 import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.TraceStore;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import com.pseuco.cp23.model.Output;
 import com.pseuco.cp23.model.PersonInfo;
-import com.pseuco.cp23.model.Query;
 import com.pseuco.cp23.model.Rectangle;
 import com.pseuco.cp23.model.Scenario;
 import com.pseuco.cp23.model.Statistics;
-import com.pseuco.cp23.model.TraceEntry;
-import com.pseuco.cp23.model.XY;
 
 /**
  * The sequential reference implementation.
  */
 public class Slug implements Simulation, Context {
+    /*
+     * The persons move slowly, so their Morton order only has to be refreshed every few ticks.
+     */
+    private static final int REORDER_TICKS = 16;
+
     private final Scenario scenario;
+    private final Rectangle grid;
 
     private final List<Person> population = new ArrayList<>();
-
-    private final List<TraceEntry> trace = new ArrayList<>();
+    // the same persons in Morton order, for the scans which do not depend on the order
+    private final List<Person> layout = new ArrayList<>();
+    private final InfectionKernel kernel;
+    private boolean extinct = false; // nobody is infected or infectious, this never changes again
+    private final Options options;
+    private DigestChains chains = null;
+    private DigestBatch digests = new DigestBatch();
+    private int stopTick = -1;
+    private LightCone cone = null; // only without a trace
+
+    private final TraceStore trace;
     private final Map<String, List<Statistics>> statistics = new HashMap<>();
+    private final QueryCounters counters;
 
     public Slug(Scenario scenario) {
+        this(scenario, new Options());
+    }
+
+    /**
+     * Constructs a slug with the given options.
+     *
+     * <p>
+     * The slug computes the infection phase with the kernel of the options, optionally on
+     * precomputed digest chains, and ends the run at the first tick the stop condition is
+     * reached at. There are no patches, so it ignores the rebalancing option.
+     * </p>
+     *
+     * @param scenario The scenario to simulate.
+     * @param options  The options of the run.
+     */
+    public Slug(Scenario scenario, Options options) {
         this.scenario = scenario;
+        this.options = options;
+        this.trace = new TraceStore(scenario.getPopulation());
+        this.grid = scenario.getGrid();
+        this.kernel = options.getKernel().create(scenario.getParameters().getInfectionRadius());
         this.populate();
+        this.counters = new QueryCounters(scenario.getQueries(), this.grid, this.grid);
+        this.counters.reset(this.population);
         this.initializeStatistics();
         this.extendOutput();
     }
@@ -57,7 +99,7 @@ public class Slug implements Simulation, Context {
 
     @Override
     public Rectangle getGrid() {
-        return this.scenario.getGrid();
+        return this.grid;
     }
 
     @Override
@@ -67,82 +109,79 @@ public class Slug implements Simulation, Context {
 
     @Override
     public List<Person> getPopulation() {
-        return this.population;
+        return this.layout;
+    }
+
+    /*
+     * Without a trace, drops the persons which can no longer influence the statistics of any
+     * query within the remaining ticks. The counters are tied to the population, so they are
+     * reset, the dropped persons are outside of all query areas and were not counted anyway.
+     */
+    private void prune(int tick) {
+        List<Person> remaining = this.cone.prune(this.population, this.scenario.getTicks() - tick);
+        if (remaining.size() < this.population.size()) {
+            this.population.clear();
+            this.population.addAll(remaining);
+            this.counters.reset(this.population);
+        }
+    }
+
+    /*
+     * Sorts the persons by the Morton order of their positions, so the collision and infection
+     * scans visit persons close to each other on the grid one after the other.
+     */
+    private void reorder() {
+        this.layout.clear();
+        this.layout.addAll(this.population);
+        this.layout.sort(new MortonComparator());
     }
 
     @Override
     public Output getOutput() {
-        return new Output(this.scenario, this.trace, this.statistics);
+        Output output = new Output(this.scenario, this.trace.asList(), this.statistics);
+        return this.stopTick < 0 ? output : output.truncate(this.stopTick);
     }
 
     private void extendStatistics() {
-        // we collect statistics based on the current SI²R values
-        for (Map.Entry<String, Query> entry : this.scenario.getQueries().entrySet()) {
-            final Query query = entry.getValue();
-            this.statistics.get(entry.getKey()).add(new Statistics(
-                    this.population.stream().filter(
-                        (Person person) -> person.isSusceptible()
-                                && query.getArea().contains(person.getPosition())
-                    ).count(),
-                    this.population.stream().filter(
-                        (Person person) -> person.isInfected()
-                                && query.getArea().contains(person.getPosition())
-                    ).count(),
-                    this.population.stream().filter(
-                        (Person person) -> person.isInfectious()
-                                && query.getArea().contains(person.getPosition())
-                    ).count(),
-                    this.population.stream().filter(
-                        (Person person) -> person.isRecovered()
-                                && query.getArea().contains(person.getPosition())
-                    ).count()
-            ));
-        }
+        // only the persons which moved or changed their state since the previous tick are counted again
+        this.counters.update(this.population);
+        this.counters.appendTo(this.statistics);
     }
 
     private void extendOutput() {
         // we extend the statists and the trace for the current tick
         if (this.scenario.getTrace()) {
-            this.trace.add(
-                new TraceEntry(
-                        this.population.stream()
-                                .map(Person::getInfo)
-                                .collect(Collectors.toList())
-                )
-            );
+            this.trace.add(this.population);
         }
 
         this.extendStatistics();
     }
 
-    private void tick() {
-        for (Person person : this.population) {
+    private void tick(int tick) {
+        // once the epidemic is extinct, the persons only move
+        boolean active = false;
+        this.kernel.clear();
+        // the RNGs of all persons are advanced together
+        this.digests.advance(this.population, tick);
+        for (int index = 0; index < this.population.size(); index++) {
+            final Person person = this.population.get(index);
             // if this were a patch, the `onPersonTick` method should be called here
-            person.tick();
+            this.digests.tick(person, index);
+            if (!this.extinct) {
+                // only infectious persons which are coughing can infect anybody in this tick
+                this.kernel.offer(person);
+                active |= person.isInfected() || person.isInfectious();
+            }
         }
 
         // bust the ghosts of all persons
         this.population.stream().forEach(Person::bustGhost);
 
-        // now compute how the infection spreads between the population
-        for (int i = 0; i < this.population.size(); i++) {
-            for (int j = i + 1; j < this.population.size(); j++) {
-                final Person iPerson = this.population.get(i);
-                final Person jPerson = this.population.get(j);
-                final XY iPosition = iPerson.getPosition();
-                final XY jPosition = jPerson.getPosition();
-                final int deltaX = Math.abs(iPosition.getX() - jPosition.getX());
-                final int deltaY = Math.abs(iPosition.getY() - jPosition.getY());
-                final int distance = deltaX + deltaY;
-                if (distance <= this.scenario.getParameters().getInfectionRadius()) {
-                    if (iPerson.isInfectious() && iPerson.isCoughing() && jPerson.isBreathing()) {
-                        jPerson.infect();
-                    }
-                    if (jPerson.isInfectious() && jPerson.isCoughing() && iPerson.isBreathing()) {
-                        iPerson.infect();
-                    }
-                }
-            }
+        if (!this.extinct) {
+            // now the emitters infect the persons around them, without any there is nothing to do
+            this.kernel.infect(this.layout);
+            // without emitters nobody got infected
+            this.extinct = !active;
         }
 
         // we need to collect statistics and extend the recorded trace
@@ -151,9 +190,33 @@ public class Slug implements Simulation, Context {
 
     @Override
     public void run() {
+        if (this.options.getPrecomputeDigests()) {
+            // with a trace the persons keep their whole digests, otherwise the draws are enough
+            this.chains = new DigestChains(this.scenario.getPopulation(), this.scenario.getTicks(),
+                    this.scenario.getTrace());
+            this.digests = new DigestBatch(this.chains);
+        }
+        if (!this.scenario.getTrace()) {
+            this.cone = new LightCone(this.scenario);
+        }
         for (int tick = 0; tick < this.scenario.getTicks(); tick++) {
+            if (this.options.getStop().isReached(this.statistics, tick)) {
+                // the statistics of this tick are the last ones
+                this.stopTick = tick;
+                break;
+            }
+            if (tick % REORDER_TICKS == 0) {
+                if (this.cone != null) {
+                    this.prune(tick);
+                }
+                this.reorder();
+            }
+            if (this.chains != null) {
+                // the window of the chains moves along once the tick has passed its end
+                this.chains.advance(tick);
+            }
             // if this were a patch, the `onPatchTick` method should be called here
-            this.tick();
+            this.tick(tick);
         }
     }
 }
\ No newline at end of file
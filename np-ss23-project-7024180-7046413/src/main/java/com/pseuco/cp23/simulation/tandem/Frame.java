@@ -0,0 +1,21 @@
+package com.pseuco.cp23.simulation.tandem;
+
+/**
+ * The outcome of the movement phase of one tick for all persons, indexed by id.
+ */
+class Frame {
+    static final byte COUGHING = 1;
+    static final byte BREATHING = 2;
+
+    final int[] x;
+    final int[] y;
+    final byte[] directions; // ordinals of the directions
+    final byte[] flags; // whether the persons are coughing and breathing in this tick
+
+    Frame(int numberOfPersons) {
+        this.x = new int[numberOfPersons];
+        this.y = new int[numberOfPersons];
+        this.directions = new byte[numberOfPersons];
+        this.flags = new byte[numberOfPersons];
+    }
+}
@@ -0,0 +1,109 @@
+package com.pseuco.cp23.simulation.tandem;
+
+/**
+ * A bounded ring of reusable frames between the movement stage and the infection stage.
+ *
+ * <p>
+ * The producer claims a free frame, fills it and publishes it, the consumer takes the
+ * oldest published frame and releases it once it is done with it. The producer may
+ * run ahead of the consumer by as many frames as the ring holds.
+ * </p>
+ *
+ * <p>
+ * If the producer fails, it records the failure in the ring and the consumer gets it
+ * thrown from <em>take</em> instead of waiting for a frame that never comes.
+ * </p>
+ */
+class FrameRing {
+    private final Frame[] frames;
+
+    private long published = 0; // number of frames published so far
+    private long released = 0; // number of frames released so far
+    private boolean claimed = false;
+    private boolean taken = false;
+    private boolean cancelled = false; // the consumer does not take any more frames
+    private Throwable failure = null; // why the producer does not publish any more frames
+
+    FrameRing(int capacity, int numberOfPersons) {
+        this.frames = new Frame[capacity];
+        for (int index = 0; index < capacity; index++) {
+            this.frames[index] = new Frame(numberOfPersons);
+        }
+    }
+
+    /**
+     * Waits for a free frame and returns it for the producer to fill.
+     *
+     * @return The frame to fill, or <em>null</em> if the ring has been cancelled.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    synchronized Frame claim() throws InterruptedException {
+        assert !this.claimed;
+        while (this.published - this.released == this.frames.length && !this.cancelled) {
+            wait();
+        }
+        if (this.cancelled) {
+            return null;
+        }
+        this.claimed = true;
+        return this.frames[(int) (this.published % this.frames.length)];
+    }
+
+    /**
+     * Makes the claimed frame available to the consumer.
+     */
+    synchronized void publish() {
+        assert this.claimed;
+        this.claimed = false;
+        this.published++;
+        notifyAll();
+    }
+
+    /**
+     * Waits for the oldest published frame and returns it for the consumer to read.
+     *
+     * @return The frame to read.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws IllegalStateException If the producer failed before publishing the frame.
+     */
+    synchronized Frame take() throws InterruptedException {
+        assert !this.taken;
+        while (this.published == this.released && this.failure == null) {
+            wait();
+        }
+        if (this.published == this.released) {
+            throw new IllegalStateException("movement stage failed", this.failure);
+        }
+        this.taken = true;
+        return this.frames[(int) (this.released % this.frames.length)];
+    }
+
+    /**
+     * Hands the taken frame back to the producer.
+     */
+    synchronized void release() {
+        assert this.taken;
+        this.taken = false;
+        this.released++;
+        notifyAll();
+    }
+
+    /**
+     * Tells the producer that no more frames are taken, e.g., because the run ended early.
+     */
+    synchronized void cancel() {
+        this.cancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * Records why the producer stopped, the consumer gets the failure once it has taken
+     * all frames published before.
+     *
+     * @param failure The exception the producer failed with.
+     */
+    synchronized void fail(Throwable failure) {
+        this.failure = failure;
+        notifyAll();
+    }
+}
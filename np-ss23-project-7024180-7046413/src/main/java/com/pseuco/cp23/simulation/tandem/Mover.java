@@ -0,0 +1,96 @@
+package com.pseuco.cp23.simulation.tandem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.Person;
+
+/**
+ * The movement stage of a tandem.
+ *
+ * <p>
+ * Movement only depends on the RNG, the direction, the obstacles and the positions of
+ * the other persons but never on the infection state, so this stage ticks its own copy
+ * of the population ahead of the infection stage and publishes positions, directions
+ * and the coughing and breathing bits of every tick. The infection states of its copy
+ * are never looked at.
+ * </p>
+ *
+ * <p>
+ * The mover is the only context of its persons and covers the whole grid, so the
+ * persons stay within the grid bounds the context promises without any patch borders.
+ * If the stage fails or gets interrupted, it records the failure in the ring, so the
+ * infection stage does not wait for its frames forever.
+ * </p>
+ */
+class Mover extends Thread implements Context {
+    private final Scenario scenario;
+    private final Rectangle grid;
+    private final FrameRing ring;
+
+    private final List<Person> population = new ArrayList<>();
+
+    Mover(Scenario scenario, FrameRing ring) {
+        this.scenario = scenario;
+        this.grid = scenario.getGrid();
+        this.ring = ring;
+        int id = 0;
+        for (PersonInfo personInfo : scenario.getPopulation()) {
+            this.population.add(new Person(id, this, scenario.getParameters(), personInfo));
+            id++;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int step = 0; step < this.scenario.getTicks(); step++) {
+                Frame frame = this.ring.claim();
+                if (frame == null) {
+                    // the infection stage ended the run early
+                    return;
+                }
+
+                // same as the movement part of the slug's tick
+                for (Person person : this.population) {
+                    person.tick();
+                }
+                this.population.stream().forEach(Person::bustGhost);
+
+                for (int id = 0; id < this.population.size(); id++) {
+                    Person person = this.population.get(id);
+                    frame.x[id] = person.getX();
+                    frame.y[id] = person.getY();
+                    frame.directions[id] = (byte) person.getDirection().ordinal();
+                    frame.flags[id] = (byte) ((person.isCoughing() ? Frame.COUGHING : 0)
+                            | (person.isBreathing() ? Frame.BREATHING : 0));
+                }
+                this.ring.publish();
+            }
+        } catch (InterruptedException error) {
+            this.ring.fail(error);
+        } catch (RuntimeException | Error error) {
+            this.ring.fail(error);
+            throw error;
+        }
+    }
+
+    @Override
+    public Rectangle getGrid() {
+        return this.grid;
+    }
+
+    @Override
+    public List<Rectangle> getObstacles() {
+        return this.scenario.getObstacles();
+    }
+
+    @Override
+    public List<Person> getPopulation() {
+        return this.population;
+    }
+}
@@ -0,0 +1,210 @@
+package com.pseuco.cp23.simulation.tandem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.Statistics;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.simulation.common.Emitters;
+import com.pseuco.cp23.simulation.common.Options;
+import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.StopCondition;
+import com.pseuco.cp23.simulation.common.TraceStore;
+
+/**
+ * A simulation running the movement phase and the infection phase of the ticks as a
+ * two-stage pipeline on two threads.
+ *
+ * <p>
+ * The movement stage (see <em>Mover</em>) runs up to <em>RING_SIZE</em> ticks ahead
+ * and hands its frames over through a bounded ring. The infection stage runs on the
+ * calling thread, it advances the infection states, spreads the infection based on the
+ * positions and the coughing and breathing bits of the frame and collects the output.
+ * This gives some parallelism even for scenarios which cannot be partitioned well.
+ * </p>
+ *
+ * <p>
+ * The tandem has no patches and thus no padding, so it takes no validator. The movement
+ * stage is the single context of all persons and its grid is the whole grid of the
+ * scenario. If the movement stage fails, the run fails with its exception.
+ * </p>
+ */
+public class Tandem implements Simulation {
+    /*
+     * Number of ticks the movement stage may run ahead of the infection stage.
+     */
+    private static final int RING_SIZE = 8;
+
+    private final Scenario scenario;
+    private final Parameters parameters;
+
+    private final InfectionState.State[] states;
+    private final int[] inStateSince;
+    private final Emitters emitters;
+
+    private final StopCondition stop;
+    private int stopTick = -1;
+
+    private final TraceStore trace;
+    private final Map<String, List<Statistics>> statistics = new HashMap<>();
+
+    public Tandem(Scenario scenario) {
+        this(scenario, new Options());
+    }
+
+    /**
+     * Constructs a tandem with the given options.
+     *
+     * <p>
+     * The tandem ends the run at the first tick the stop condition is reached at, the
+     * movement stage then stops as well. Its stages do not use a kernel, digest chains
+     * or patches, so it ignores the other options.
+     * </p>
+     *
+     * @param scenario The scenario to simulate.
+     * @param options  The options of the run.
+     */
+    public Tandem(Scenario scenario, Options options) {
+        this.scenario = scenario;
+        this.stop = options.getStop();
+        this.parameters = scenario.getParameters();
+        this.emitters = new Emitters(this.parameters.getInfectionRadius());
+        this.trace = new TraceStore(scenario.getPopulation());
+
+        int numberOfPersons = scenario.getPopulation().size();
+        this.states = new InfectionState.State[numberOfPersons];
+        this.inStateSince = new int[numberOfPersons];
+        for (int id = 0; id < numberOfPersons; id++) {
+            InfectionState infectionState = scenario.getPopulation().get(id).getInfectionState();
+            this.states[id] = infectionState.getState();
+            this.inStateSince[id] = infectionState.getInStateSince();
+        }
+
+        for (String queryKey : this.scenario.getQueries().keySet()) {
+            this.statistics.put(queryKey, new ArrayList<>());
+        }
+    }
+
+    @Override
+    public Output getOutput() {
+        Output output = new Output(this.scenario, this.trace.asList(), this.statistics);
+        return this.stopTick < 0 ? output : output.truncate(this.stopTick);
+    }
+
+    @Override
+    public void run() {
+        int numberOfPersons = this.states.length;
+        FrameRing ring = new FrameRing(RING_SIZE, numberOfPersons);
+        Mover mover = new Mover(this.scenario, ring);
+        mover.start();
+
+        // the initial state is the one of the scenario
+        if (this.scenario.getTrace()) {
+            this.trace.add(new TraceEntry(this.scenario.getPopulation()));
+        }
+        int[] x = new int[numberOfPersons];
+        int[] y = new int[numberOfPersons];
+        for (int id = 0; id < numberOfPersons; id++) {
+            x[id] = this.scenario.getPopulation().get(id).getPosition().getX();
+            y[id] = this.scenario.getPopulation().get(id).getPosition().getY();
+        }
+        extendStatistics(x, y);
+
+        try {
+            for (int step = 0; step < this.scenario.getTicks(); step++) {
+                if (this.stop.isReached(this.statistics, step)) {
+                    // the statistics of this tick are the last ones, the movement stage stops as well
+                    this.stopTick = step;
+                    break;
+                }
+                Frame frame = ring.take();
+                advanceStates();
+                spreadInfection(frame);
+                extendOutput(frame);
+                ring.release();
+            }
+            // lets the movement stage return if the run ended early
+            ring.cancel();
+            mover.join();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(error);
+        } finally {
+            // does not leave the movement stage waiting for a frame if the run failed
+            ring.cancel();
+        }
+    }
+
+    /*
+     * Same as the infection state part of Person.tick().
+     */
+    private void advanceStates() {
+        for (int id = 0; id < this.states.length; id++) {
+            this.inStateSince[id]++;
+            if (this.states[id] == InfectionState.State.INFECTED
+                    && this.inStateSince[id] >= this.parameters.getIncubationTime()) {
+                this.states[id] = InfectionState.State.INFECTIOUS;
+                this.inStateSince[id] = 0;
+            } else if (this.states[id] == InfectionState.State.INFECTIOUS
+                    && this.inStateSince[id] >= this.parameters.getRecoveryTime()) {
+                this.states[id] = InfectionState.State.RECOVERED;
+                this.inStateSince[id] = 0;
+            }
+        }
+    }
+
+    /*
+     * Same as the infection part of the slug's tick, the infectious persons which are coughing
+     * infect the susceptible persons breathing around them.
+     */
+    private void spreadInfection(Frame frame) {
+        this.emitters.clear();
+        for (int id = 0; id < this.states.length; id++) {
+            if (this.states[id] == InfectionState.State.INFECTIOUS && (frame.flags[id] & Frame.COUGHING) != 0) {
+                this.emitters.add(frame.x[id], frame.y[id]);
+            }
+        }
+        if (this.emitters.isEmpty()) {
+            return;
+        }
+        for (int id = 0; id < this.states.length; id++) {
+            if (this.states[id] == InfectionState.State.SUSCEPTIBLE && (frame.flags[id] & Frame.BREATHING) != 0
+                    && this.emitters.reaches(frame.x[id], frame.y[id])) {
+                this.states[id] = InfectionState.State.INFECTED;
+                this.inStateSince[id] = 0;
+            }
+        }
+    }
+
+    private void extendOutput(Frame frame) {
+        if (this.scenario.getTrace()) {
+            // the digests are not needed, the store derives them from the seeds
+            this.trace.add(frame.x, frame.y, frame.directions, this.states, this.inStateSince);
+        }
+        extendStatistics(frame.x, frame.y);
+    }
+
+    private void extendStatistics(int[] x, int[] y) {
+        for (Map.Entry<String, Query> entry : this.scenario.getQueries().entrySet()) {
+            final Query query = entry.getValue();
+            long[] counts = new long[InfectionState.State.values().length];
+            for (int id = 0; id < this.states.length; id++) {
+                if (query.getArea().contains(x[id], y[id])) {
+                    counts[this.states[id].ordinal()]++;
+                }
+            }
+            this.statistics.get(entry.getKey()).add(new Statistics(
+                    counts[InfectionState.State.SUSCEPTIBLE.ordinal()],
+                    counts[InfectionState.State.INFECTED.ordinal()],
+                    counts[InfectionState.State.INFECTIOUS.ordinal()],
+                    counts[InfectionState.State.RECOVERED.ordinal()]));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * A simulation running the movement and the infection phase as a pipeline.
+ */
+package com.pseuco.cp23.simulation.tandem;
@@ -0,0 +1,116 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Partition;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.KdLayout;
+import com.pseuco.cp23.simulation.rocket.Utils;
+
+import org.junit.Test;
+
+public class TestBucketPopulation {
+    /*
+     * A scenario with a hotspot in one corner and a few persons spread over the rest of the grid.
+     */
+    private static Scenario createScenario(Random random, int width, int height) {
+        List<PersonInfo> population = new ArrayList<>();
+        for (int id = 0; id < 500; id++) {
+            boolean hotspot = id % 4 != 0;
+            XY position = hotspot
+                    ? new XY(random.nextInt(Math.max(1, width / 5)), random.nextInt(Math.max(1, height / 5)))
+                    : new XY(random.nextInt(width), random.nextInt(height));
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            population.add(new PersonInfo("p" + id, position, seed,
+                    new InfectionState(InfectionState.State.SUSCEPTIBLE, 0), Direction.NONE));
+        }
+        // the cuts have to be strictly ascending and inside of the grid
+        Partition partition = new Partition(
+                width >= 6 ? Arrays.asList(width / 3, width / 2) : new ArrayList<>(),
+                height >= 4 ? Arrays.asList(height / 4) : new ArrayList<>());
+        return new Scenario("random", new Parameters(120, 160, 25, 60, 3, 3), 10, new XY(width, height), false,
+                partition, new ArrayList<>(), new HashMap<>(), population);
+    }
+
+    private static List<Person> createPopulation(Scenario scenario) {
+        List<Person> population = new ArrayList<>();
+        Context context = new Context() {
+            @Override
+            public Rectangle getGrid() {
+                return scenario.getGrid();
+            }
+
+            @Override
+            public List<Rectangle> getObstacles() {
+                return scenario.getObstacles();
+            }
+
+            @Override
+            public List<Person> getPopulation() {
+                return population;
+            }
+        };
+        for (int id = 0; id < scenario.getPopulation().size(); id++) {
+            population.add(new Person(id, context, scenario.getParameters(), scenario.getPopulation().get(id)));
+        }
+        return population;
+    }
+
+    private static void assertSameAsFilter(Scenario scenario, List<Rectangle> areas, List<Person> population) {
+        List<List<Person>> buckets = Utils.bucketPopulation(scenario, areas, population);
+        assertEquals(areas.size(), buckets.size());
+        for (int id = 0; id < areas.size(); id++) {
+            // what every patch used to do on its own
+            Rectangle area = areas.get(id);
+            List<Person> expected = population.stream()
+                    .filter((Person person) -> area.contains(person.getPosition()))
+                    .collect(Collectors.toList());
+            assertEquals(area.toString(), expected, buckets.get(id));
+        }
+    }
+
+    @Test
+    public void testMatchesThePerPatchFilter() {
+        Random random = new Random(27);
+        for (int[] size : new int[][] { { 100, 50 }, { 7, 300 }, { 1, 1 }, { 999, 13 } }) {
+            Scenario scenario = createScenario(random, size[0], size[1]);
+            List<Person> population = createPopulation(scenario);
+
+            for (int padding : new int[] { 0, 3, 17, 2000 }) {
+                for (List<Rectangle> patches : Arrays.asList(new GridLayout(scenario).getPatches(),
+                        new KdLayout(scenario, 7).getPatches())) {
+                    List<Rectangle> areas = new ArrayList<>();
+                    for (Rectangle patch : patches) {
+                        areas.add(Utils.getLookingGrid(scenario, patch, padding));
+                    }
+                    assertSameAsFilter(scenario, areas, population);
+                }
+            }
+
+            // arbitrary overlapping areas, some of them sticking out of the grid
+            List<Rectangle> areas = new ArrayList<>();
+            for (int area = 0; area < 30; area++) {
+                XY topLeft = new XY(random.nextInt(size[0] + 10) - 5, random.nextInt(size[1] + 10) - 5);
+                areas.add(new Rectangle(topLeft, new XY(1 + random.nextInt(size[0]), 1 + random.nextInt(size[1]))));
+            }
+            assertSameAsFilter(scenario, areas, population);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Statistics;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.model.XY;
+
+import org.junit.Test;
+
+public class TestCodecs {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testWritesAnnotatedFormat() throws Exception {
+        PersonInfo person = new PersonInfo("Alice", new XY(3, 4), new byte[] { 1, 2, 3, 4 },
+                new InfectionState(InfectionState.State.SUSCEPTIBLE, 2), Direction.NORTH_EAST);
+        assertEquals("{\"population\":[{\"name\":\"Alice\",\"pos\":{\"x\":3,\"y\":4},\"rngState\":\"AQIDBA==\","
+                + "\"infectionState\":{\"type\":\"healthy\",\"since\":2},\"direction\":\"NE\"}]}",
+                this.objectMapper.writeValueAsString(new TraceEntry(Arrays.asList(person))));
+        assertEquals("{\"susceptible\":1,\"infected\":2,\"infectious\":3,\"recovered\":4}",
+                this.objectMapper.writeValueAsString(new Statistics(1, 2, 3, 4)));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Random random = new Random(7);
+        for (int length = 0; length < 40; length++) {
+            byte[] seed = new byte[length];
+            random.nextBytes(seed);
+            PersonInfo person = new PersonInfo("p" + length, new XY(length, -length), seed,
+                    new InfectionState(InfectionState.State.values()[length % 4], length),
+                    Direction.values()[length % Direction.values().length]);
+            String json = this.objectMapper.writeValueAsString(person);
+            assertEquals(person, this.objectMapper.readValue(json, PersonInfo.class));
+        }
+    }
+
+    @Test
+    public void testReadsAnyOrder() throws Exception {
+        PersonInfo person = this.objectMapper.readValue("{\"direction\":\"X\",\"infectionState\":{\"type\":\"infected\"},"
+                + "\"rngState\":\"AQID\",\"pos\":{\"y\":1,\"x\":2},\"name\":\"Bob\"}", PersonInfo.class);
+        assertEquals(new PersonInfo("Bob", new XY(2, 1), new byte[] { 1, 2, 3 },
+                new InfectionState(InfectionState.State.INFECTED, 0), Direction.NONE), person);
+    }
+
+    @Test
+    public void testCoercesScalars() throws Exception {
+        // numbers within strings and names given as numbers are accepted like by the default deserializers
+        PersonInfo person = this.objectMapper.readValue("{\"name\":42,\"pos\":{\"x\":\" 2\",\"y\":1},"
+                + "\"rngState\":\"AQID\",\"infectionState\":{\"type\":\"recovered\",\"since\":\"7\"},"
+                + "\"direction\":\"S\"}", PersonInfo.class);
+        assertEquals(new PersonInfo("42", new XY(2, 1), new byte[] { 1, 2, 3 },
+                new InfectionState(InfectionState.State.RECOVERED, 7), Direction.SOUTH), person);
+        assertEquals(new Statistics(1, 2, 3, 4), this.objectMapper.readValue(
+                "{\"susceptible\":\"1\",\"infected\":2,\"infectious\":3,\"recovered\":4}", Statistics.class));
+        for (String json : new String[] { "{\"x\":\"one\",\"y\":1}", "{\"x\":[1],\"y\":1}",
+                "{\"x\":\"4294967296\",\"y\":1}" }) {
+            try {
+                this.objectMapper.readValue(json, XY.class);
+                fail("invalid number accepted: " + json);
+            } catch (MismatchedInputException exception) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testRequiresFields() throws Exception {
+        try {
+            this.objectMapper.readValue("{\"x\":1}", XY.class);
+            fail("missing field accepted");
+        } catch (MismatchedInputException exception) {
+            // expected
+        }
+    }
+}
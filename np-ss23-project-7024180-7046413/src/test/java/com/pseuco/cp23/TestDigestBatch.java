@@ -0,0 +1,107 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.DigestBatch;
+import com.pseuco.cp23.simulation.common.DigestChains;
+import com.pseuco.cp23.simulation.common.Person;
+
+import org.junit.Test;
+
+public class TestDigestBatch {
+    @Test
+    public void testMatchesMessageDigest() throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        Parameters parameters = new Parameters(120, 160, 25, 60, 3, 3);
+        Random random = new Random(42);
+        // not a multiple of any vector length, so the last group is partial
+        List<byte[]> digests = new ArrayList<>();
+        for (int id = 0; id < 37; id++) {
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            digests.add(seed);
+        }
+        DigestBatch batch = new DigestBatch();
+        for (int step = 0; step < 3; step++) {
+            List<Person> population = new ArrayList<>();
+            for (int id = 0; id < digests.size(); id++) {
+                population.add(new Person(id, null, parameters, new PersonInfo("p" + id, XY.ZERO, digests.get(id),
+                        new InfectionState(InfectionState.State.SUSCEPTIBLE, 0), Direction.NONE)));
+            }
+            batch.advance(population, step);
+            for (int id = 0; id < digests.size(); id++) {
+                assertArrayEquals(messageDigest.digest(digests.get(id)), batch.get(id));
+                digests.set(id, batch.get(id));
+            }
+        }
+    }
+
+    @Test
+    public void testChainsMatchMessageDigest() throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        Random random = new Random(7);
+        List<PersonInfo> population = new ArrayList<>();
+        for (int id = 0; id < 100; id++) {
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            population.add(new PersonInfo("p" + id, XY.ZERO, seed,
+                    new InfectionState(InfectionState.State.SUSCEPTIBLE, 0), Direction.NONE));
+        }
+        DigestChains chains = new DigestChains(population, 5, true);
+        for (int id = 0; id < population.size(); id++) {
+            byte[] digest = population.get(id).getSeed();
+            for (int tick = 0; tick < 5; tick++) {
+                digest = messageDigest.digest(digest);
+                assertArrayEquals(digest, chains.get(id, tick));
+            }
+        }
+    }
+
+    @Test
+    public void testWindowSlidesOverDraws() throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        Random random = new Random(9);
+        List<PersonInfo> population = new ArrayList<>();
+        for (int id = 0; id < 70; id++) {
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            population.add(new PersonInfo("p" + id, XY.ZERO, seed,
+                    new InfectionState(InfectionState.State.SUSCEPTIBLE, 0), Direction.NONE));
+        }
+        // the window only holds 4 of the 23 ticks of the draws
+        int ticks = 23;
+        DigestChains chains = new DigestChains(population, ticks, false, 4 * 70 * Person.RNG.DRAWS);
+        assertFalse(chains.isFull());
+        assertEquals(4, chains.getEnd());
+
+        byte[][] digests = new byte[population.size()][];
+        for (int id = 0; id < population.size(); id++) {
+            digests[id] = population.get(id).getSeed();
+        }
+        for (int tick = 0; tick < ticks; tick++) {
+            chains.advance(tick);
+            assertTrue(tick < chains.getEnd());
+            for (int id = 0; id < population.size(); id++) {
+                digests[id] = messageDigest.digest(digests[id]);
+                assertEquals(Person.RNG.pack(digests[id]), chains.getDraws(id, tick));
+            }
+        }
+
+        // skipping ticks hashes them without storing them
+        DigestChains skipping = new DigestChains(population, ticks, false, 4 * 70 * Person.RNG.DRAWS);
+        skipping.advance(ticks - 1);
+        for (int id = 0; id < population.size(); id++) {
+            assertEquals(Person.RNG.pack(digests[id]), skipping.getDraws(id, ticks - 1));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.pseuco.cp23.simulation.common.Emitters;
+
+import org.junit.Test;
+
+public class TestEmitters {
+    @Test
+    public void testReaches() {
+        Random random = new Random(42);
+        for (int infectionRadius = 0; infectionRadius <= 4; infectionRadius++) {
+            // few emitters are checked one by one, many are looked up in buckets
+            for (int numberOfEmitters : new int[] { 0, 3, 40 }) {
+                Emitters emitters = new Emitters(infectionRadius);
+                List<int[]> positions = new ArrayList<>();
+                for (int index = 0; index < numberOfEmitters; index++) {
+                    int[] position = new int[] { random.nextInt(30), random.nextInt(30) };
+                    positions.add(position);
+                    emitters.add(position[0], position[1]);
+                }
+                assertEquals(numberOfEmitters == 0, emitters.isEmpty());
+                for (int x = 0; x < 30; x++) {
+                    for (int y = 0; y < 30; y++) {
+                        boolean expected = false;
+                        for (int[] position : positions) {
+                            expected |= Math.abs(position[0] - x) + Math.abs(position[1] - y) <= infectionRadius;
+                        }
+                        assertEquals(expected, emitters.reaches(x, y));
+                    }
+                }
+            }
+        }
+    }
+}
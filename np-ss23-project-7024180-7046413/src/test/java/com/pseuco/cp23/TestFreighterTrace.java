@@ -0,0 +1,84 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.simulation.freighter.Freighter;
+import com.pseuco.cp23.simulation.slug.Slug;
+
+import org.junit.Test;
+
+public class TestFreighterTrace {
+    private static Scenario loadScenario(boolean trace) throws IOException {
+        Scenario scenario = new ObjectMapper().readValue(TestFreighterTrace.class.getClassLoader()
+                .getResourceAsStream("scenarios/public/we_love_np.json"), Scenario.class);
+        return new Scenario(scenario.getName(), scenario.getParameters(), scenario.getTicks(),
+                scenario.getGridSize(), trace, scenario.getPartition(), scenario.getObstacles(), scenario.getQueries(),
+                scenario.getPopulation());
+    }
+
+    @Test
+    public void testReadsTheTraceInAnyOrderUntilClosed() throws Exception {
+        Scenario scenario = loadScenario(true);
+        Slug reference = new Slug(scenario);
+        reference.run();
+        List<TraceEntry> expected = reference.getOutput().getTrace();
+
+        Freighter freighter = new Freighter(scenario, 10, 2);
+        freighter.run();
+        List<TraceEntry> trace = freighter.getOutput().getTrace();
+        assertEquals(expected.size(), trace.size());
+        // backwards, then forwards again with the offsets already indexed
+        for (int index = trace.size() - 1; index >= 0; index--) {
+            assertEquals("tick " + index, expected.get(index).getPopulation(), trace.get(index).getPopulation());
+        }
+        for (int index = 0; index < trace.size(); index += 7) {
+            assertEquals("tick " + index, expected.get(index).getPopulation(), trace.get(index).getPopulation());
+        }
+
+        freighter.close();
+        for (int index : new int[] { 0, 1 }) {
+            try {
+                trace.get(index);
+                fail();
+            } catch (IllegalStateException expectedFailure) {
+            }
+        }
+    }
+
+    @Test
+    public void testServesThePopulationFromDisk() throws Exception {
+        Scenario scenario = loadScenario(false);
+        List<PersonInfo> expected = new ArrayList<>(scenario.getPopulation());
+        WeakReference<List<PersonInfo>> original = new WeakReference<>(scenario.getPopulation());
+        Freighter freighter = new Freighter(scenario, 10, 2);
+        scenario = null;
+        freighter.run();
+
+        // the freighter only holds the names and the initial records in its files
+        for (int attempt = 0; attempt < 20 && original.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(original.get());
+        Output output = freighter.getOutput();
+        assertEquals(expected, output.getScenario().getPopulation());
+        assertEquals(expected, output.truncate(5).getScenario().getPopulation());
+
+        freighter.close();
+        try {
+            output.getScenario().getPopulation().get(0);
+            fail();
+        } catch (IllegalStateException expectedFailure) {
+        }
+    }
+}
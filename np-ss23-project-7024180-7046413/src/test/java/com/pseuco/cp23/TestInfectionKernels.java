@@ -0,0 +1,75 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.InfectionKernel;
+import com.pseuco.cp23.simulation.common.Person;
+
+import org.junit.Test;
+
+public class TestInfectionKernels {
+    private static List<Person> createPopulation(Parameters parameters, long seed) {
+        Random random = new Random(seed);
+        List<Person> population = new ArrayList<>();
+        Context context = new Context() {
+            @Override
+            public Rectangle getGrid() {
+                return new Rectangle(XY.ZERO, new XY(200, 100));
+            }
+
+            @Override
+            public List<Rectangle> getObstacles() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<Person> getPopulation() {
+                return population;
+            }
+        };
+        InfectionState.State[] states = InfectionState.State.values();
+        for (int id = 0; id < 400; id++) {
+            byte[] digest = new byte[32];
+            random.nextBytes(digest);
+            // the positions leave a wide gap so the emitters do not form a single cluster
+            XY position = new XY(random.nextInt(40) + (random.nextBoolean() ? 150 : 0), random.nextInt(100));
+            population.add(new Person(id, context, parameters, new PersonInfo("p" + id, position, digest,
+                    new InfectionState(states[random.nextInt(states.length)], 0), Direction.NONE)));
+        }
+        return population;
+    }
+
+    @Test
+    public void testKernelsAgree() {
+        for (int infectionRadius = 0; infectionRadius <= 5; infectionRadius++) {
+            Parameters parameters = new Parameters(120, 160, 25, 60, infectionRadius, 3);
+            List<List<Person>> results = new ArrayList<>();
+            for (InfectionKernel.Type type : InfectionKernel.Type.values()) {
+                List<Person> population = createPopulation(parameters, infectionRadius);
+                InfectionKernel kernel = type.create(infectionRadius);
+                kernel.clear();
+                for (Person person : population) {
+                    kernel.offer(person);
+                }
+                kernel.infect(population);
+                results.add(population);
+            }
+            for (List<Person> result : results) {
+                for (int id = 0; id < result.size(); id++) {
+                    assertEquals(results.get(0).get(id).getState(), result.get(id).getState());
+                }
+            }
+        }
+    }
+}
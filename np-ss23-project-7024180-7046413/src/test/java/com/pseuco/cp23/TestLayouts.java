@@ -0,0 +1,152 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Partition;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.KdLayout;
+import com.pseuco.cp23.simulation.rocket.Layout;
+
+import org.junit.Test;
+
+public class TestLayouts {
+    /*
+     * A scenario whose persons crowd around a few random hotspots.
+     */
+    private static Scenario createScenario(Random random, int width, int height, Partition partition) {
+        List<PersonInfo> population = new ArrayList<>();
+        int[][] hotspots = new int[3][];
+        for (int hotspot = 0; hotspot < hotspots.length; hotspot++) {
+            hotspots[hotspot] = new int[] { random.nextInt(width), random.nextInt(height) };
+        }
+        for (int id = 0; id < 300; id++) {
+            int[] hotspot = hotspots[random.nextInt(hotspots.length)];
+            int x = Math.max(0, Math.min(width - 1, hotspot[0] + random.nextInt(11) - 5));
+            int y = Math.max(0, Math.min(height - 1, hotspot[1] + random.nextInt(11) - 5));
+            population.add(new PersonInfo("p" + id, new XY(x, y), new byte[32],
+                    new InfectionState(InfectionState.State.SUSCEPTIBLE, 0), Direction.NONE));
+        }
+        return new Scenario("random", new Parameters(120, 160, 25, 60, 3, 3), 10, new XY(width, height), false,
+                partition, new ArrayList<>(), new HashMap<>(), population);
+    }
+
+    /*
+     * Every cell of the grid belongs to exactly one patch and no patch is empty.
+     */
+    private static void assertTiles(Layout layout, XY gridSize) {
+        int[] owners = new int[gridSize.getX() * gridSize.getY()];
+        for (Rectangle patch : layout.getPatches()) {
+            assertTrue(patch.toString(), patch.getSize().getX() >= 1 && patch.getSize().getY() >= 1);
+            for (XY cell : patch) {
+                assertTrue(patch.toString(), cell.getX() >= 0 && cell.getX() < gridSize.getX());
+                assertTrue(patch.toString(), cell.getY() >= 0 && cell.getY() < gridSize.getY());
+                owners[cell.getY() * gridSize.getX() + cell.getX()]++;
+            }
+        }
+        for (int cell = 0; cell < owners.length; cell++) {
+            assertEquals("cell " + cell, 1, owners[cell]);
+        }
+    }
+
+    private static double[] randomCosts(Random random, int patches) {
+        double[] costs = new double[patches];
+        for (int patch = 0; patch < patches; patch++) {
+            // mostly cheap patches with a few very expensive ones, some without any cost
+            costs[patch] = random.nextInt(5) == 0 ? 1000 * random.nextDouble() : random.nextInt(3);
+        }
+        return costs;
+    }
+
+    @Test
+    public void testKdLayoutTilesTheGrid() {
+        Random random = new Random(29);
+        Partition partition = new Partition(new ArrayList<>(), new ArrayList<>());
+        boolean moved = false;
+        for (int[] size : new int[][] { { 100, 50 }, { 64, 64 }, { 3, 200 }, { 1, 1 }, { 17, 5 } }) {
+            for (int patches : new int[] { 1, 2, 5, 8, 16, 33 }) {
+                Scenario scenario = createScenario(random, size[0], size[1], partition);
+                Layout layout = new KdLayout(scenario, patches);
+                int count = layout.getPatches().size();
+                assertTrue(count >= 1 && count <= patches);
+                assertTiles(layout, scenario.getGridSize());
+
+                // the patches keep their number and still tile the grid however the costs look
+                for (int epoch = 0; epoch < 20; epoch++) {
+                    Layout previous = layout;
+                    layout = layout.rebalance(randomCosts(random, count));
+                    assertEquals(count, layout.getPatches().size());
+                    assertTiles(layout, scenario.getGridSize());
+                    // rectangles do not implement equals
+                    moved |= !layout.getPatches().toString().equals(previous.getPatches().toString());
+                }
+            }
+        }
+        assertTrue(moved);
+    }
+
+    /*
+     * The cuts of a grid layout along one axis are the left (or top) sides of the patches
+     * in the first row (or column) but the first one.
+     */
+    private static int[] cuts(Layout layout, int columns, int rows, boolean alongX) {
+        int[] result = new int[(alongX ? columns : rows) - 1];
+        for (int index = 0; index < result.length; index++) {
+            Rectangle patch = layout.getPatches().get(alongX ? index + 1 : (index + 1) * columns);
+            result[index] = alongX ? patch.getTopLeft().getX() : patch.getTopLeft().getY();
+        }
+        return result;
+    }
+
+    private static void assertClamped(int[] cuts, int size) {
+        String text = Arrays.toString(cuts);
+        for (int index = 0; index < cuts.length; index++) {
+            assertTrue(text, cuts[index] >= 1 && cuts[index] <= size - 1);
+            assertTrue(text, index == 0 || cuts[index] > cuts[index - 1]);
+        }
+    }
+
+    @Test
+    public void testGridLayoutRebalanceKeepsTheCutsApart() {
+        Random random = new Random(30);
+        // the tight partitions leave no room for any stripe to shrink
+        Partition[] partitions = {
+                new Partition(Arrays.asList(1, 2, 3, 4), Arrays.asList(1)),
+                new Partition(Arrays.asList(2, 3), Arrays.asList(10, 11, 40)),
+                new Partition(Arrays.asList(25, 50, 75), Arrays.asList(20, 40)),
+                new Partition(new ArrayList<>(), Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)),
+        };
+        int[][] sizes = { { 5, 2 }, { 100, 50 }, { 100, 50 }, { 4, 9 } };
+        for (int index = 0; index < partitions.length; index++) {
+            Scenario scenario = createScenario(random, sizes[index][0], sizes[index][1], partitions[index]);
+            int columns = partitions[index].getX().size() + 1;
+            int rows = partitions[index].getY().size() + 1;
+            Layout layout = new GridLayout(scenario);
+            for (int epoch = 0; epoch < 50; epoch++) {
+                double[] costs = randomCosts(random, columns * rows);
+                if (epoch % 10 == 0) {
+                    // everything in one corner pulls all cuts towards it
+                    Arrays.fill(costs, 0);
+                    costs[epoch % 20 == 0 ? 0 : costs.length - 1] = 1e9;
+                }
+                layout = layout.rebalance(costs);
+                assertEquals(columns * rows, layout.getPatches().size());
+                assertClamped(cuts(layout, columns, rows, true), scenario.getGridSize().getX());
+                assertClamped(cuts(layout, columns, rows, false), scenario.getGridSize().getY());
+                assertTiles(layout, scenario.getGridSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.LightCone;
+import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.slug.Slug;
+
+import org.junit.Test;
+
+public class TestLightCone {
+    /*
+     * The bundled scenario with small query areas, such that the cone actually drops persons.
+     */
+    private static Scenario createScenario(boolean trace) throws IOException {
+        Scenario scenario = new ObjectMapper().readValue(TestLightCone.class.getClassLoader()
+                .getResourceAsStream("scenarios/public/we_love_np.json"), Scenario.class);
+        Map<String, Query> queries = new HashMap<>();
+        queries.put("corner", new Query(new Rectangle(XY.ZERO, new XY(10, 10))));
+        queries.put("middle", new Query(new Rectangle(new XY(45, 20), new XY(8, 6))));
+        return new Scenario(scenario.getName(), scenario.getParameters(), 150, scenario.getGridSize(), trace,
+                scenario.getPartition(), scenario.getObstacles(), queries, scenario.getPopulation());
+    }
+
+    private static List<Person> createPopulation(Scenario scenario, List<PersonInfo> infos) {
+        List<Person> population = new ArrayList<>();
+        Context context = new Context() {
+            @Override
+            public Rectangle getGrid() {
+                return scenario.getGrid();
+            }
+
+            @Override
+            public List<Rectangle> getObstacles() {
+                return scenario.getObstacles();
+            }
+
+            @Override
+            public List<Person> getPopulation() {
+                return population;
+            }
+        };
+        for (int id = 0; id < infos.size(); id++) {
+            population.add(new Person(id, context, scenario.getParameters(), infos.get(id)));
+        }
+        return population;
+    }
+
+    @Test
+    public void testKeepsEverybodyEnteringAQueryArea() throws IOException {
+        Scenario scenario = createScenario(true);
+        Slug reference = new Slug(scenario);
+        reference.run();
+        List<TraceEntry> trace = reference.getOutput().getTrace();
+
+        // the last tick each person is inside of a query area
+        int numberOfPersons = scenario.getPopulation().size();
+        int[] lastInside = new int[numberOfPersons];
+        for (int tick = 0; tick <= scenario.getTicks(); tick++) {
+            List<PersonInfo> infos = trace.get(tick).getPopulation();
+            for (int id = 0; id < numberOfPersons; id++) {
+                for (Query query : scenario.getQueries().values()) {
+                    if (query.getArea().contains(infos.get(id).getPosition())) {
+                        lastInside[id] = tick;
+                    }
+                }
+            }
+        }
+
+        LightCone cone = new LightCone(scenario);
+        int dropped = 0;
+        for (int tick = 0; tick <= scenario.getTicks(); tick++) {
+            List<Person> population = createPopulation(scenario, trace.get(tick).getPopulation());
+            Set<Integer> kept = new HashSet<>();
+            for (Person person : cone.prune(population, scenario.getTicks() - tick)) {
+                kept.add(person.getId());
+            }
+            for (int id = 0; id < numberOfPersons; id++) {
+                if (lastInside[id] >= tick) {
+                    assertTrue("person " + id + " at tick " + tick, kept.contains(id));
+                }
+            }
+            dropped += numberOfPersons - kept.size();
+        }
+        // otherwise the test would not show anything
+        assertTrue(dropped > 0);
+    }
+
+    @Test
+    public void testPruningKeepsTheStatistics() throws IOException {
+        Slug reference = new Slug(createScenario(true));
+        reference.run();
+        Slug pruned = new Slug(createScenario(false));
+        pruned.run();
+        Output expected = reference.getOutput();
+        assertEquals(expected.getStatistics(), pruned.getOutput().getStatistics());
+    }
+}
@@ -0,0 +1,62 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.pseuco.cp23.io.Compression;
+import com.pseuco.cp23.io.ParallelGzipOutputStream;
+
+import org.junit.Test;
+
+public class TestParallelGzip {
+    @Test
+    public void testGunzipReadsBlocks() throws Exception {
+        Random random = new Random(5);
+        // compressible text spanning several blocks, written in chunks of odd sizes
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        while (expected.size() < 1000000) {
+            expected.write(("{\"name\":\"p" + random.nextInt(5000) + "\",\"pos\":{\"x\":" + random.nextInt(400) + "}},")
+                    .getBytes("UTF-8"));
+        }
+        byte[] data = expected.toByteArray();
+
+        for (int workers : new int[] { 1, 3 }) {
+            Path path = Files.createTempFile("gzip", ".json.gz");
+            try {
+                try (ParallelGzipOutputStream output = new ParallelGzipOutputStream(path, workers, 6)) {
+                    int offset = 0;
+                    while (offset < data.length) {
+                        int count = Math.min(random.nextInt(70000), data.length - offset);
+                        output.write(data, offset, count);
+                        output.write(new byte[0]);
+                        offset += count;
+                    }
+                }
+                assertTrue(Files.size(path) < data.length / 2);
+                try (InputStream input = Compression.openInput(path.toFile())) {
+                    assertArrayEquals(data, input.readAllBytes());
+                }
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Path path = Files.createTempFile("gzip", ".gz");
+        try {
+            new ParallelGzipOutputStream(path, 2, 6).close();
+            try (InputStream input = Compression.openInput(path.toFile())) {
+                assertEquals(0, input.readAllBytes().length);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Partition;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.rocket.PartitionPlanner;
+
+import org.junit.Test;
+
+public class TestPartitionPlanner {
+    /*
+     * A scenario whose persons are spread evenly or, if skewed, mostly crowd into one corner.
+     */
+    private static Scenario createScenario(Random random, int width, int height, boolean skewed) {
+        List<PersonInfo> population = new ArrayList<>();
+        for (int id = 0; id < 1000; id++) {
+            boolean crowded = skewed && id % 5 != 0;
+            XY position = crowded
+                    ? new XY(random.nextInt(Math.max(1, width / 4)), random.nextInt(Math.max(1, height / 3)))
+                    : new XY(random.nextInt(width), random.nextInt(height));
+            population.add(new PersonInfo("p" + id, position, new byte[32],
+                    new InfectionState(InfectionState.State.SUSCEPTIBLE, 0), Direction.NONE));
+        }
+        Partition partition = new Partition(new ArrayList<>(), new ArrayList<>());
+        return new Scenario("random", new Parameters(120, 160, 25, 60, 3, 3), 10, new XY(width, height), false,
+                partition, new ArrayList<>(), new HashMap<>(), population);
+    }
+
+    private static int countPatches(Partition partition) {
+        return (partition.getX().size() + 1) * (partition.getY().size() + 1);
+    }
+
+    private static void assertInside(List<Integer> cuts, int size) {
+        for (int index = 0; index < cuts.size(); index++) {
+            assertTrue(cuts.toString(), cuts.get(index) >= 1 && cuts.get(index) <= size - 1);
+            assertTrue(cuts.toString(), index == 0 || cuts.get(index) > cuts.get(index - 1));
+        }
+    }
+
+    /*
+     * Cuts the given size into stripes of (almost) the same width.
+     */
+    private static List<Integer> evenCuts(int stripes, int size) {
+        List<Integer> cuts = new ArrayList<>();
+        for (int stripe = 1; stripe < stripes; stripe++) {
+            cuts.add(stripe * size / stripes);
+        }
+        return cuts;
+    }
+
+    @Test
+    public void testPlansTheRequestedPatches() {
+        Random random = new Random(28);
+        for (int[] size : new int[][] { { 200, 100 }, { 64, 64 }, { 30, 500 } }) {
+            for (boolean skewed : new boolean[] { false, true }) {
+                Scenario scenario = createScenario(random, size[0], size[1], skewed);
+                PartitionPlanner planner = new PartitionPlanner(scenario, 10);
+                for (int patches : new int[] { 1, 2, 4, 6, 8, 9, 12 }) {
+                    Partition partition = planner.plan(patches);
+                    assertEquals(patches, countPatches(partition));
+                    assertInside(partition.getX(), size[0]);
+                    assertInside(partition.getY(), size[1]);
+                }
+                for (int patches : new int[] { 5, 7, 11 }) {
+                    // a prime number of patches may be traded for a better shape
+                    Partition partition = planner.plan(patches);
+                    int count = countPatches(partition);
+                    assertTrue(count + " patches", count <= patches && count >= patches / 2);
+                    assertInside(partition.getX(), size[0]);
+                    assertInside(partition.getY(), size[1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSmallGridsGetFewerPatches() {
+        Random random = new Random(28);
+        for (int[] size : new int[][] { { 1, 1 }, { 3, 2 }, { 1, 40 } }) {
+            Scenario scenario = createScenario(random, size[0], size[1], true);
+            PartitionPlanner planner = new PartitionPlanner(scenario, 10);
+            for (int patches : new int[] { 1, 4, 8 }) {
+                Partition partition = planner.plan(patches);
+                int count = countPatches(partition);
+                assertTrue(count >= 1 && count <= Math.min(patches, size[0] * size[1]));
+                assertInside(partition.getX(), size[0]);
+                assertInside(partition.getY(), size[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testSkewedPopulationBeatsEvenCuts() {
+        Random random = new Random(28);
+        for (int[] size : new int[][] { { 200, 100 }, { 64, 64 }, { 30, 500 } }) {
+            Scenario scenario = createScenario(random, size[0], size[1], true);
+            PartitionPlanner planner = new PartitionPlanner(scenario, 10);
+            for (int patches : new int[] { 4, 6, 9 }) {
+                double planned = planner.estimateMaximalCost(planner.plan(patches));
+                // the planned cuts are cheaper than cutting the grid evenly into any shape
+                for (int patchesX = 1; patchesX <= patches; patchesX++) {
+                    if (patches % patchesX != 0) {
+                        continue;
+                    }
+                    Partition even = new Partition(evenCuts(patchesX, size[0]),
+                            evenCuts(patches / patchesX, size[1]));
+                    assertTrue(patchesX + " columns", planned < planner.estimateMaximalCost(even));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Statistics;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Context;
+import com.pseuco.cp23.simulation.common.Person;
+import com.pseuco.cp23.simulation.common.QueryCounters;
+
+import org.junit.Test;
+
+public class TestQueryCounters {
+    @Test
+    public void testMatchesRecount() {
+        Random random = new Random(3);
+        Rectangle grid = new Rectangle(XY.ZERO, new XY(60, 40));
+        Rectangle owned = new Rectangle(new XY(10, 5), new XY(30, 30));
+        // more than 64 queries, so the masks take two words
+        Map<String, Query> queries = new LinkedHashMap<>();
+        for (int index = 0; index < 70; index++) {
+            XY topLeft = new XY(random.nextInt(50), random.nextInt(30));
+            queries.put("q" + index, new Query(new Rectangle(topLeft, new XY(1 + random.nextInt(10), 1 + random.nextInt(10)))));
+        }
+
+        List<Person> population = new ArrayList<>();
+        Context context = new Context() {
+            @Override
+            public Rectangle getGrid() {
+                return grid;
+            }
+
+            @Override
+            public List<Rectangle> getObstacles() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<Person> getPopulation() {
+                return population;
+            }
+        };
+        Parameters parameters = new Parameters(120, 160, 25, 5, 3, 2);
+        InfectionState.State[] states = InfectionState.State.values();
+        for (int id = 0; id < 300; id++) {
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            population.add(new Person(id, context, parameters, new PersonInfo("p" + id,
+                    new XY(random.nextInt(60), random.nextInt(40)), seed,
+                    new InfectionState(states[random.nextInt(states.length)], 0), Direction.NONE)));
+        }
+
+        QueryCounters counters = new QueryCounters(queries, grid, owned);
+        counters.reset(population);
+        for (int tick = 0; tick < 20; tick++) {
+            for (Person person : population) {
+                person.tick();
+            }
+            for (Person person : population) {
+                person.bustGhost();
+            }
+            Map<String, List<Statistics>> statistics = new HashMap<>();
+            for (String key : queries.keySet()) {
+                statistics.put(key, new ArrayList<>());
+            }
+            counters.update(population);
+            counters.appendTo(statistics);
+            for (Map.Entry<String, Query> entry : queries.entrySet()) {
+                long[] expected = new long[states.length];
+                for (Person person : population) {
+                    if (entry.getValue().getArea().contains(person.getX(), person.getY())
+                            && owned.contains(person.getX(), person.getY())) {
+                        expected[person.getState().ordinal()]++;
+                    }
+                }
+                assertEquals(new Statistics(expected[0], expected[1], expected[2], expected[3]),
+                        statistics.get(entry.getKey()).get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Partition;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Query;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.Statistics;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Options;
+import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.KdLayout;
+import com.pseuco.cp23.simulation.rocket.Rocket;
+import com.pseuco.cp23.simulation.slug.Slug;
+import com.pseuco.cp23.simulation.tandem.Tandem;
+import com.pseuco.cp23.validator.DummyValidator;
+
+import org.junit.Test;
+
+/*
+ * Scenarios in which most patches are dormant and the epidemic dies out early, the engines
+ * skipping work for them have to agree with the tandem, which always simulates everything.
+ */
+public class TestSparseScenarios {
+    private static Scenario createScenario(long seed, int infected, boolean trace) {
+        Random random = new Random(seed);
+        List<PersonInfo> population = new ArrayList<>();
+        for (int id = 0; id < 80; id++) {
+            byte[] digest = new byte[32];
+            random.nextBytes(digest);
+            InfectionState.State state = id < infected ? InfectionState.State.INFECTED
+                    : InfectionState.State.SUSCEPTIBLE;
+            // everybody starts in the top-left corner of a large grid
+            population.add(new PersonInfo("p" + id, new XY(random.nextInt(40), random.nextInt(40)), digest,
+                    new InfectionState(state, 0), Direction.NONE));
+        }
+        List<Integer> cuts = Arrays.asList(75, 150, 225, 300, 375, 450, 525);
+        Map<String, Query> queries = new HashMap<>();
+        queries.put("all", new Query(new Rectangle(XY.ZERO, new XY(600, 600))));
+        queries.put("corner", new Query(new Rectangle(XY.ZERO, new XY(50, 50))));
+        queries.put("far", new Query(new Rectangle(new XY(500, 500), new XY(100, 100))));
+        List<Rectangle> obstacles = Arrays.asList(new Rectangle(new XY(20, 45), new XY(30, 3)));
+        // a short recovery time lets the epidemic die out long before the end
+        Parameters parameters = new Parameters(20, 150, 20, 30, 5, 3);
+        return new Scenario("sparse", parameters, 300, new XY(600, 600), trace, new Partition(cuts, cuts),
+                obstacles, queries, population);
+    }
+
+    private static List<Simulation> createEngines(Scenario scenario) throws Exception {
+        List<Simulation> engines = new ArrayList<>();
+        engines.add(new Slug(scenario));
+        engines.add(new Rocket(scenario, 20, new DummyValidator()));
+        engines.add(new Rocket(scenario, 12, new DummyValidator(), new KdLayout(scenario, 16), new Options()));
+        engines.add(new Rocket(scenario, 20, new DummyValidator(), new GridLayout(scenario),
+                new Options().withRebalance(true)));
+        return engines;
+    }
+
+    @Test
+    public void testDormantAndExtinctPatchesChangeNothing() throws Exception {
+        for (int infected : new int[] { 0, 5 }) {
+            for (boolean trace : new boolean[] { false, true }) {
+                Scenario scenario = createScenario(45 + infected, infected, trace);
+                Simulation reference = new Tandem(scenario);
+                reference.run();
+                Output expected = reference.getOutput();
+
+                if (infected > 0) {
+                    // otherwise the extinct part of the run would not be tested
+                    List<Statistics> all = expected.getStatistics().get("all");
+                    Statistics last = all.get(all.size() - 1);
+                    assertEquals(0, last.getInfected() + last.getInfectious());
+                    assertTrue(all.get(100).getRecovered() > 0);
+                }
+
+                for (Simulation engine : createEngines(scenario)) {
+                    engine.run();
+                    Output output = engine.getOutput();
+                    String name = engine.getClass().getSimpleName() + " infected=" + infected + " trace=" + trace;
+                    assertEquals(name, expected.getStatistics(), output.getStatistics());
+                    assertEquals(name, expected.getTrace().size(), output.getTrace().size());
+                    for (int tick = 0; tick < expected.getTrace().size(); tick++) {
+                        assertEquals(name + " tick " + tick, expected.getTrace().get(tick).getPopulation(),
+                                output.getTrace().get(tick).getPopulation());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Statistics;
+import com.pseuco.cp23.simulation.rocket.StatisticsSeries;
+
+import org.junit.Test;
+
+public class TestStatisticsSeries {
+    @Test
+    public void testConcurrentAddsMatchSerialSum() throws Exception {
+        List<String> keys = Arrays.asList("a", "b", "c");
+        int ticks = 50;
+        int patches = 8;
+        int size = keys.size() * 4;
+
+        // random values for every patch and tick, indexed like the buffers of the patches
+        Random random = new Random(11);
+        long[][] values = new long[patches][(ticks + 1) * size];
+        long[] expected = new long[(ticks + 1) * size];
+        for (int patch = 0; patch < patches; patch++) {
+            for (int index = 0; index < values[patch].length; index++) {
+                values[patch][index] = random.nextInt(1000);
+                expected[index] += values[patch][index];
+            }
+        }
+
+        StatisticsSeries series = new StatisticsSeries(keys, ticks);
+        // the patches add their values in chunks of different lengths at the same time
+        int[] epochs = { 0, 7, 20, 21, 50 };
+        for (int epoch = 0; epoch + 1 < epochs.length; epoch++) {
+            final int start = epochs[epoch] == 0 ? 0 : epochs[epoch] + 1;
+            final int end = epochs[epoch + 1];
+            List<Thread> threads = new ArrayList<>();
+            for (int patch = 0; patch < patches; patch++) {
+                final int id = patch;
+                threads.add(new Thread(() -> {
+                    for (int tick = start; tick <= end; tick += 1 + id % 3) {
+                        int count = Math.min(1 + id % 3, end + 1 - tick);
+                        long[] chunk = Arrays.copyOfRange(values[id], tick * size, (tick + count) * size);
+                        series.add(tick, count, chunk);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            series.complete(end);
+        }
+
+        Map<String, List<Statistics>> statistics = series.getStatistics();
+        for (int query = 0; query < keys.size(); query++) {
+            List<Statistics> entries = statistics.get(keys.get(query));
+            assertEquals(ticks + 1, entries.size());
+            for (int tick = 0; tick <= ticks; tick++) {
+                int index = tick * size + query * 4;
+                Statistics entry = entries.get(tick);
+                assertEquals(expected[index], entry.getSusceptible());
+                assertEquals(expected[index + 1], entry.getInfected());
+                assertEquals(expected[index + 2], entry.getInfectious());
+                assertEquals(expected[index + 3], entry.getRecovered());
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyCompletedTicksAreVisible() {
+        StatisticsSeries series = new StatisticsSeries(Arrays.asList("a"), 10);
+        series.add(0, 3, new long[12]);
+        series.add(0, 3, new long[12]);
+        series.complete(1);
+        assertEquals(2, series.getStatistics().get("a").size());
+        try {
+            series.getStatistics().get("a").get(2);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+}
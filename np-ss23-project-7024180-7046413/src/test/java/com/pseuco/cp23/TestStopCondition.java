@@ -0,0 +1,178 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.Statistics;
+import com.pseuco.cp23.simulation.common.Options;
+import com.pseuco.cp23.simulation.common.Simulation;
+import com.pseuco.cp23.simulation.common.StopCondition;
+import com.pseuco.cp23.simulation.freighter.Freighter;
+import com.pseuco.cp23.simulation.rocket.GridLayout;
+import com.pseuco.cp23.simulation.rocket.KdLayout;
+import com.pseuco.cp23.simulation.rocket.Rocket;
+import com.pseuco.cp23.simulation.slug.Slug;
+import com.pseuco.cp23.simulation.tandem.Tandem;
+import com.pseuco.cp23.validator.DummyValidator;
+
+import org.junit.Test;
+
+public class TestStopCondition {
+    private static Map<String, List<Statistics>> series(Statistics... entries) {
+        Map<String, List<Statistics>> statistics = new HashMap<>();
+        statistics.put("a", Arrays.asList(entries));
+        return statistics;
+    }
+
+    @Test
+    public void testExtinct() {
+        Map<String, List<Statistics>> statistics = series(
+                new Statistics(5, 1, 0, 0), new Statistics(5, 0, 1, 0), new Statistics(5, 0, 0, 1));
+        StopCondition condition = StopCondition.parse("extinct");
+        assertFalse(condition.isReached(statistics, 0));
+        assertFalse(condition.isReached(statistics, 1));
+        assertTrue(condition.isReached(statistics, 2));
+    }
+
+    @Test
+    public void testNeverReachedWithoutQueries() throws Exception {
+        Map<String, List<Statistics>> statistics = new HashMap<>();
+        assertFalse(StopCondition.parse("extinct").isReached(statistics, 0));
+        assertFalse(StopCondition.parse("steady:0").isReached(statistics, 3));
+
+        // the run simulates all ticks instead of ending with the initial state
+        Scenario scenario = loadScenario();
+        scenario = new Scenario(scenario.getName(), scenario.getParameters(), 20, scenario.getGridSize(), true,
+                scenario.getPartition(), scenario.getObstacles(), new HashMap<>(), scenario.getPopulation());
+        Simulation engine = new Slug(scenario, new Options().withStop(StopCondition.parse("extinct")));
+        engine.run();
+        assertEquals(20, engine.getOutput().getScenario().getTicks());
+        assertEquals(21, engine.getOutput().getTrace().size());
+    }
+
+    @Test
+    public void testCommasDoNotSplitConditions() throws Exception {
+        File scenarioFile = Paths.get(TestStopCondition.class.getClassLoader()
+                .getResource("scenarios/public/we_love_np.json").toURI()).toFile();
+        File outputFile = File.createTempFile("we_love_np", ".json");
+        try {
+            // split on the comma, the second part would be a valid condition of its own
+            Simulator.main(new String[] { "--scenario", scenarioFile.getPath(), "--out", outputFile.getPath(),
+                    "--stop", "grid.infectious>=1,extinct" });
+            fail("one invalid condition");
+        } catch (IllegalArgumentException expected) {
+        } finally {
+            outputFile.delete();
+        }
+    }
+
+    @Test
+    public void testSteady() {
+        Map<String, List<Statistics>> statistics = series(
+                new Statistics(5, 1, 0, 0), new Statistics(4, 2, 0, 0), new Statistics(4, 2, 0, 0),
+                new Statistics(4, 2, 0, 0), new Statistics(4, 2, 0, 0));
+        StopCondition condition = StopCondition.parse("steady:2");
+        assertFalse(condition.isReached(statistics, 0));
+        assertFalse(condition.isReached(statistics, 1));
+        assertFalse(condition.isReached(statistics, 2));
+        assertTrue(condition.isReached(statistics, 3));
+        // stateless, the ticks may be checked in any order and any number of times
+        assertTrue(condition.isReached(statistics, 4));
+        assertFalse(condition.isReached(statistics, 2));
+        assertEquals(3, StopCondition.find(condition, statistics, 0, 5, 5));
+    }
+
+    @Test
+    public void testComparisons() {
+        Map<String, List<Statistics>> statistics = series(new Statistics(7, 3, 2, 1));
+        assertTrue(StopCondition.parse("a.susceptible>=7").isReached(statistics, 0));
+        assertFalse(StopCondition.parse("a.susceptible>7").isReached(statistics, 0));
+        assertTrue(StopCondition.parse("a.infected <= 3").isReached(statistics, 0));
+        assertFalse(StopCondition.parse("a.infected<3").isReached(statistics, 0));
+        assertTrue(StopCondition.parse("a.infectious==2").isReached(statistics, 0));
+        assertTrue(StopCondition.parse("a.recovered>0").isReached(statistics, 0));
+        try {
+            StopCondition.parse("b.infected>0").isReached(statistics, 0);
+            fail("unknown query");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            StopCondition.parse("a.sick>0");
+            fail("unknown state");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            StopCondition.parse("whenever");
+            fail("invalid condition");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testAnyOfAndNever() {
+        Map<String, List<Statistics>> statistics = series(new Statistics(7, 3, 0, 0), new Statistics(6, 4, 0, 0));
+        StopCondition condition = StopCondition.anyOf(Arrays.asList(
+                StopCondition.parse("a.infected>=4"), StopCondition.parse("a.susceptible<=0")));
+        assertEquals(1, StopCondition.find(condition, statistics, 0, 2, 10));
+        assertEquals(-1, StopCondition.find(StopCondition.NEVER, statistics, 0, 2, 10));
+        // the last tick of the scenario is never checked
+        assertEquals(-1, StopCondition.find(condition, statistics, 0, 2, 1));
+    }
+
+    private static Scenario loadScenario() throws IOException {
+        return new ObjectMapper().readValue(TestStopCondition.class.getClassLoader()
+                .getResourceAsStream("scenarios/public/we_love_np.json"), Scenario.class);
+    }
+
+    private static List<Simulation> createEngines(Scenario scenario, Options options) throws Exception {
+        List<Simulation> engines = new ArrayList<>();
+        engines.add(new Slug(scenario, options));
+        engines.add(new Rocket(scenario, 10, new DummyValidator(), new GridLayout(scenario), options));
+        engines.add(new Rocket(scenario, 15, new DummyValidator(), new KdLayout(scenario, 4),
+                options.withRebalance(true)));
+        engines.add(new Tandem(scenario, options));
+        engines.add(new Freighter(scenario, 10, 2, options));
+        engines.add(new AutoTuner(scenario, 4, options).tune());
+        return engines;
+    }
+
+    @Test
+    public void testEnginesStopAtTheSameTick() throws Exception {
+        Scenario scenario = loadScenario();
+        Simulation reference = new Slug(scenario);
+        reference.run();
+        Map<String, List<Statistics>> full = reference.getOutput().getStatistics();
+
+        List<Statistics> grid = full.get("grid");
+        long peak = 0;
+        for (Statistics entry : grid) {
+            peak = Math.max(peak, entry.getInfectious());
+        }
+        for (String text : new String[] { "grid.infectious>=" + Math.max(1, peak / 2), "steady:5", "extinct",
+                "grid.susceptible<0" }) {
+            StopCondition condition = StopCondition.parse(text);
+            int stopTick = StopCondition.find(condition, full, 0, scenario.getTicks(), scenario.getTicks());
+            int ticks = stopTick < 0 ? scenario.getTicks() : stopTick;
+
+            for (Simulation engine : createEngines(scenario, new Options().withStop(condition))) {
+                engine.run();
+                Output output = engine.getOutput();
+                String name = text + " " + engine.getClass().getSimpleName();
+                assertEquals(name, ticks, output.getScenario().getTicks());
+                assertEquals(name, full.get("grid").subList(0, ticks + 1), output.getStatistics().get("grid"));
+                assertEquals(name, ticks + 1, output.getTrace().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.pseuco.cp23.model.Parameters;
+import com.pseuco.cp23.model.Partition;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.Rectangle;
+import com.pseuco.cp23.model.Scenario;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.Utils;
+import com.pseuco.cp23.simulation.rocket.Topology;
+
+import org.junit.Test;
+
+public class TestTopology {
+    private static Scenario createScenario(int infectionRadius, List<Rectangle> obstacles) {
+        return new Scenario(
+            "topology", new Parameters(20, 150, 20, 140, infectionRadius, 3), 10, new XY(30, 20), false,
+            new Partition(Arrays.asList(10, 20), Arrays.asList(10)), obstacles, new HashMap<>(),
+            new ArrayList<PersonInfo>()
+        );
+    }
+
+    @Test
+    public void testMayPropagateFrom() {
+        List<Rectangle> obstacles = Arrays.asList(
+            new Rectangle(new XY(9, 0), new XY(3, 20)),
+            new Rectangle(new XY(20, 5), new XY(1, 15)),
+            new Rectangle(new XY(25, 0), new XY(1, 12))
+        );
+        List<Rectangle> areas = Arrays.asList(
+            new Rectangle(new XY(0, 0), new XY(9, 20)),
+            new Rectangle(new XY(12, 0), new XY(8, 10)),
+            new Rectangle(new XY(21, 10), new XY(4, 10)),
+            new Rectangle(new XY(26, 0), new XY(4, 4)),
+            new Rectangle(new XY(9, 3), new XY(3, 3))
+        );
+        for (int infectionRadius = 0; infectionRadius <= 4; infectionRadius++) {
+            Scenario scenario = createScenario(infectionRadius, obstacles);
+            Topology topology = new Topology(scenario);
+            for (Rectangle source : areas) {
+                for (Rectangle target : areas) {
+                    assertEquals(
+                        Utils.mayPropagateFrom(scenario, source, target),
+                        topology.mayPropagateFrom(source, target)
+                    );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNeighbours() {
+        Scenario scenario = createScenario(2, Arrays.asList(new Rectangle(new XY(9, 0), new XY(3, 20))));
+        List<Rectangle> patches = Arrays.asList(
+            new Rectangle(new XY(0, 0), new XY(10, 20)),
+            new Rectangle(new XY(10, 0), new XY(10, 20)),
+            new Rectangle(new XY(20, 0), new XY(10, 20))
+        );
+        List<List<Integer>> neighbours = Topology.of(scenario).getNeighbours(patches, 5);
+        assertEquals(Arrays.asList(), neighbours.get(0));
+        assertEquals(Arrays.asList(2), neighbours.get(1));
+        assertEquals(Arrays.asList(1), neighbours.get(2));
+    }
+}
@@ -0,0 +1,73 @@
+package com.pseuco.cp23;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.pseuco.cp23.model.Direction;
+import com.pseuco.cp23.model.InfectionState;
+import com.pseuco.cp23.model.PersonInfo;
+import com.pseuco.cp23.model.TraceEntry;
+import com.pseuco.cp23.model.XY;
+import com.pseuco.cp23.simulation.common.TraceStore;
+
+import org.junit.Test;
+
+public class TestTraceStore {
+    @Test
+    public void testRoundTrip() throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        Random random = new Random(5);
+        List<PersonInfo> population = new ArrayList<>();
+        for (int id = 0; id < 23; id++) {
+            byte[] seed = new byte[32];
+            random.nextBytes(seed);
+            population.add(new PersonInfo("p" + id, new XY(random.nextInt(50), random.nextInt(50)), seed,
+                    new InfectionState(InfectionState.State.SUSCEPTIBLE, random.nextInt(3)), Direction.NONE));
+        }
+
+        List<TraceEntry> expected = new ArrayList<>();
+        expected.add(new TraceEntry(population));
+        TraceStore store = new TraceStore(population);
+        store.add(expected.get(0));
+        for (int tick = 1; tick < 40; tick++) {
+            List<PersonInfo> next = new ArrayList<>();
+            for (PersonInfo info : population) {
+                // mostly steps with a matching direction and growing states, sometimes anything at all
+                XY delta = new XY(random.nextInt(3) - 1, random.nextInt(3) - 1);
+                XY position = random.nextInt(10) == 0
+                        ? new XY(random.nextInt(1000) - 500, random.nextInt(1000) - 500)
+                        : info.getPosition().add(delta);
+                Direction direction = random.nextInt(10) == 0
+                        ? Direction.values()[random.nextInt(Direction.values().length)]
+                        : Direction.fromVector(delta);
+                InfectionState state = random.nextInt(10) == 0
+                        ? new InfectionState(InfectionState.State.values()[random.nextInt(4)], random.nextInt(100))
+                        : new InfectionState(info.getInfectionState().getState(),
+                                info.getInfectionState().getInStateSince() + 1);
+                next.add(new PersonInfo(info.getName(), position, messageDigest.digest(info.getSeed()), state,
+                        direction));
+            }
+            population = next;
+            expected.add(new TraceEntry(population));
+            store.add(expected.get(tick));
+        }
+
+        List<TraceEntry> trace = store.asList();
+        assertEquals(expected.size(), trace.size());
+        for (int tick = 0; tick < expected.size(); tick++) {
+            assertEquals(expected.get(tick).getPopulation(), trace.get(tick).getPopulation());
+        }
+        // reading backwards decodes from the start again
+        assertEquals(expected.get(3).getPopulation(), trace.get(3).getPopulation());
+        assertEquals(expected.get(1).getPopulation(), trace.get(1).getPopulation());
+        // reading the same entry again returns the current snapshot
+        assertEquals(expected.get(1).getPopulation(), trace.get(1).getPopulation());
+        assertEquals(expected.get(0).getPopulation(), trace.get(0).getPopulation());
+        assertEquals(expected.get(0).getPopulation(), trace.get(0).getPopulation());
+        assertEquals(expected.get(39).getPopulation(), trace.get(39).getPopulation());
+    }
+}
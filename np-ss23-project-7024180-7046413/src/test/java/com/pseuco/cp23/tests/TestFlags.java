@@ -0,0 +1,105 @@
+package com.pseuco.cp23.tests;
+
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pseuco.cp23.Simulator;
+import com.pseuco.cp23.io.Compression;
+import com.pseuco.cp23.model.Output;
+import com.pseuco.cp23.simulation.common.InfectionKernel;
+import com.pseuco.cp23.tests.common.Checker;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/*
+ * Runs the simulator with every flag which must not change the output and compares the
+ * output with the one of the slug.
+ */
+@RunWith(Parameterized.class)
+public class TestFlags {
+    private static final ClassLoader loader = TestFlags.class.getClassLoader();
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String[] SCENARIOS = { "we_love_np" };
+
+    private static final String[] FLAGS = {
+            "--precompute-digests",
+            "--rocket",
+            "--rocket --precompute-digests",
+            "--rocket --rebalance",
+            "--rocket --kd --patches 5",
+            "--rocket --kd --patches 7 --rebalance",
+            "--rocket --plan-partition --patches 7",
+            "--tandem",
+            "--freighter --workers 2",
+            "--auto --patches 4",
+            "--gzip",
+    };
+
+    @Parameters(name = "{0} {1}")
+    public static Collection<Object[]> getParameters() {
+        List<String> flags = new ArrayList<>(Arrays.asList(FLAGS));
+        for (InfectionKernel.Type kernel : InfectionKernel.Type.values()) {
+            flags.add("--kernel " + kernel.name());
+            flags.add("--rocket --kernel " + kernel.name());
+        }
+        List<Object[]> parameters = new ArrayList<>();
+        for (String scenario : SCENARIOS) {
+            for (String flag : flags) {
+                parameters.add(new Object[] { scenario, flag });
+            }
+        }
+        return parameters;
+    }
+
+    private final String scenario;
+    private final String flags;
+
+    public TestFlags(String scenario, String flags) {
+        this.scenario = scenario;
+        this.flags = flags;
+    }
+
+    private static Output simulate(String scenario, String flags) throws IOException, URISyntaxException {
+        File scenarioFile = Paths.get(loader.getResource("scenarios/public/" + scenario + ".json").toURI()).toFile();
+        File outputFile = File.createTempFile(scenario, ".json");
+        try {
+            List<String> args = new ArrayList<>(Arrays.asList(
+                    "--scenario", scenarioFile.getPath(), "--out", outputFile.getPath()));
+            args.addAll(Arrays.asList(flags.split(" ")));
+            Simulator.main(args.toArray(new String[0]));
+            try (InputStream input = Compression.openInput(outputFile)) {
+                return objectMapper.readValue(input, Output.class);
+            }
+        } finally {
+            outputFile.delete();
+        }
+    }
+
+    @Test
+    public void testMatchesTheSlug() throws IOException, URISyntaxException {
+        final Output expected = simulate(this.scenario, "--slug");
+        final Output output = simulate(this.scenario, this.flags);
+        final Checker checker = new Checker();
+        checker.check(output, expected);
+        for (String problem : checker.getProblems()) {
+            System.err.println(problem);
+            break;
+        }
+        assertFalse("invalid output for " + this.flags, checker.hasProblems());
+    }
+}